@@ -0,0 +1,34 @@
+package spw4.game2048;
+
+import java.util.Random;
+
+// reproducible benchmark inputs, sampled from random play with a fixed seed
+final class Boards {
+
+    static final long SEED = 2048;
+
+    private Boards() {
+    }
+
+    static long[] positions(int count, int minEmpty, int maxEmpty) {
+        Random random = new Random(SEED);
+        Direction[] directions = Direction.values();
+        long[] boards = new long[count];
+
+        Game game = new Game(random);
+        game.initialize();
+        int found = 0;
+        while (found < count) {
+            if (game.isOver()) {
+                game.initialize();
+            }
+            game.move(directions[random.nextInt(directions.length)]);
+
+            int empty = Bitboard.countEmpty(game.getBoard());
+            if (empty >= minEmpty && empty <= maxEmpty && !game.isOver()) {
+                boards[found++] = game.getBoard();
+            }
+        }
+        return boards;
+    }
+}
@@ -0,0 +1,54 @@
+package spw4.game2048;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+
+    private static final int POSITIONS = 1024;
+
+    private long[] boards;
+    private long[] nearlyFullBoards;
+    private Random random;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        boards = Boards.positions(POSITIONS, 0, 14);
+        nearlyFullBoards = Boards.positions(POSITIONS, 1, 2);
+        random = new Random(Boards.SEED);
+    }
+
+    // a fresh game per call, so the cached legal moves are always recomputed
+    @Benchmark
+    public boolean isOver() {
+        return new Game(boards[next++ & (POSITIONS - 1)], 0, 0, random).isOver();
+    }
+
+    @Benchmark
+    public Game generateTileNearlyFull() {
+        Game game = new Game(nearlyFullBoards[next++ & (POSITIONS - 1)], 0, 0, random);
+        game.generateTile();
+        return game;
+    }
+
+    @Benchmark
+    public String toStringBoard() {
+        return new Game(boards[next++ & (POSITIONS - 1)], 0, 0, random).toString();
+    }
+
+    // copying the whole game state, the replacement for the old int[][] copyBoard()
+    @Benchmark
+    public Game copyBoard() {
+        Game game = new Game(boards[next++ & (POSITIONS - 1)], 0, 0, random);
+        return new Game(game.getBoard(), game.getScore(), game.getMoves(), random);
+    }
+}
@@ -0,0 +1,41 @@
+package spw4.game2048;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameServletBenchmark {
+
+    private static final int POSITIONS = 1024;
+
+    private GamePage page;
+    private UUID id;
+    private Game[] games;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        page = new GamePage();
+        id = new UUID(Boards.SEED, Boards.SEED);
+        Random random = new Random(Boards.SEED);
+        long[] boards = Boards.positions(POSITIONS, 0, 14);
+        games = new Game[POSITIONS];
+        for (int i = 0; i < POSITIONS; i++) {
+            games[i] = new Game(boards[i], 4 * i, i, random);
+        }
+    }
+
+    // renders into the reused page buffer, the length keeps the work from being eliminated
+    @Benchmark
+    public int renderPage() {
+        return page.render(id, games[next++ & (POSITIONS - 1)]).length();
+    }
+}
@@ -0,0 +1,53 @@
+package spw4.game2048;
+
+import org.openjdk.jmh.annotations.*;
+import spw4.game2048.store.MoveJournal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// durable moves/sec with many request threads sharing the group commit
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(64)
+public class JournalBenchmark {
+
+    private static final int POSITIONS = 1024;
+
+    private Path file;
+    private MoveJournal journal;
+    private long[] boards;
+
+    @State(Scope.Thread)
+    public static class Session {
+        UUID id = UUID.randomUUID();
+        Game game = new Game(new SplitMixSpawner(id.getLeastSignificantBits()));
+        int next;
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("game2048", ".journal");
+        journal = new MoveJournal(file);
+        boards = Boards.positions(POSITIONS, 0, 14);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        journal.close();
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public void logMove(Session session) {
+        long before = boards[session.next++ & (POSITIONS - 1)];
+        journal.await(journal.logMove(session.id, Direction.left, before, session.game));
+    }
+}
@@ -0,0 +1,48 @@
+package spw4.game2048;
+
+import org.openjdk.jmh.annotations.*;
+import spw4.game2048.leaderboard.Leaderboard;
+import spw4.game2048.leaderboard.Score;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LeaderboardBenchmark {
+
+    private Leaderboard leaderboard;
+
+    @Setup
+    public void setUp() {
+        leaderboard = new Leaderboard();
+    }
+
+    // scores of random finished games; most do not place once the boards are full
+    @Benchmark
+    @Threads(4)
+    public void submit() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        leaderboard.submit(new Score(new UUID(random.nextLong(), random.nextLong()), random.nextInt(100_000),
+                random.nextInt(5_000), 4, 1024, false, System.currentTimeMillis()));
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public void mixedSubmit() {
+        submit();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    public List<Score> mixedRead() {
+        return leaderboard.today(10);
+    }
+}
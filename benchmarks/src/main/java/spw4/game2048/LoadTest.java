@@ -0,0 +1,133 @@
+package spw4.game2048;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop load test against a running server: every client creates a game through the JSON API and
+ * then sends random moves, one at a time, until the time is up. Clients are chains of async callbacks rather than
+ * threads, so 10k clients need only the HTTP client's few threads.
+ * <pre>
+ * java -cp target/benchmarks.jar spw4.game2048.LoadTest --url=http://localhost:8080/game2048 --clients=10000 --seconds=60
+ * </pre>
+ */
+public class LoadTest {
+
+    private static final Pattern ID = Pattern.compile("\"id\":\"([0-9a-f-]+)\"");
+    private static final String[] DIRECTIONS = {"up", "down", "left", "right"};
+    // latency histogram, bucket i counts requests that took [2^i, 2^(i+1)) microseconds
+    private static final int BUCKETS = 40;
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    private final String url;
+    private final long deadline;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final AtomicLongArray latencies = new AtomicLongArray(BUCKETS);
+
+    LoadTest(String url, long deadline) {
+        this.url = url;
+        this.deadline = deadline;
+    }
+
+    public static void main(String[] args) {
+        String url = "http://localhost:8080";
+        int clients = 10_000;
+        int seconds = 60;
+        for (String arg : args) {
+            if (arg.startsWith("--url=")) url = arg.substring(6);
+            else if (arg.startsWith("--clients=")) clients = Integer.parseInt(arg.substring(10));
+            else if (arg.startsWith("--seconds=")) seconds = Integer.parseInt(arg.substring(10));
+            else throw new IllegalArgumentException("unknown argument " + arg);
+        }
+
+        long start = System.nanoTime();
+        LoadTest test = new LoadTest(url, start + seconds * 1_000_000_000L);
+        CompletableFuture<?>[] running = new CompletableFuture<?>[clients];
+        for (int i = 0; i < clients; i++) {
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            running[i] = done;
+            test.play(done);
+        }
+        CompletableFuture.allOf(running).join();
+        test.print((System.nanoTime() - start) / 1e9);
+    }
+
+    // each step schedules the next from its callback, so a client holds no growing chain of futures
+    private void play(CompletableFuture<Void> done) {
+        if (System.nanoTime() >= deadline) {
+            done.complete(null);
+            return;
+        }
+        send(HttpRequest.newBuilder(URI.create(url + "/api/games")).POST(HttpRequest.BodyPublishers.noBody()).build())
+                .thenAccept(body -> {
+                    Matcher matcher = body == null ? null : ID.matcher(body);
+                    if (matcher == null || !matcher.find()) {
+                        done.complete(null);
+                    } else {
+                        move(url + "/api/games/" + matcher.group(1) + "/moves?direction=", done);
+                    }
+                });
+    }
+
+    private void move(String movesUrl, CompletableFuture<Void> done) {
+        if (System.nanoTime() >= deadline) {
+            done.complete(null);
+            return;
+        }
+        String direction = DIRECTIONS[ThreadLocalRandom.current().nextInt(DIRECTIONS.length)];
+        HttpRequest request = HttpRequest.newBuilder(URI.create(movesUrl + direction))
+                .POST(HttpRequest.BodyPublishers.noBody()).build();
+        send(request).thenAccept(body -> {
+            // an over game keeps rejecting moves, so start a new one
+            if (body == null || body.contains("\"over\":true")) {
+                play(done);
+            } else {
+                move(movesUrl, done);
+            }
+        });
+    }
+
+    // the response body, or null on errors
+    private CompletableFuture<String> send(HttpRequest request) {
+        long start = System.nanoTime();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).handle((response, failure) -> {
+            long micros = Math.max(1, (System.nanoTime() - start) / 1000);
+            latencies.incrementAndGet(Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros)));
+            requests.increment();
+            if (failure != null || response.statusCode() >= 300) {
+                errors.increment();
+                return null;
+            }
+            return response.body();
+        });
+    }
+
+    private void print(double seconds) {
+        long total = requests.sum();
+        System.out.printf("requests   %d in %.1f s, %.0f/s%n", total, seconds, total / seconds);
+        System.out.printf("errors     %d%n", errors.sum());
+        System.out.printf("p50        < %d us%n", percentile(total, 0.50));
+        System.out.printf("p99        < %d us%n", percentile(total, 0.99));
+        System.out.printf("p99.9      < %d us%n", percentile(total, 0.999));
+    }
+
+    // upper bound of the bucket holding the given quantile
+    private long percentile(long total, double quantile) {
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += latencies.get(i);
+            if (seen >= quantile * total) return 1L << (i + 1);
+        }
+        return Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,42 @@
+package spw4.game2048;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveBenchmark {
+
+    private static final int POSITIONS = 1024;
+
+    @Param({"up", "down", "left", "right"})
+    public Direction direction;
+
+    private long[] boards;
+    private Random random;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        boards = Boards.positions(POSITIONS, 0, 14);
+        random = new Random(Boards.SEED);
+    }
+
+    @Benchmark
+    public Game gameMove() {
+        Game game = new Game(boards[next++ & (POSITIONS - 1)], 0, 0, random);
+        game.move(direction);
+        return game;
+    }
+
+    @Benchmark
+    public long bitboardMove() {
+        return Bitboard.move(boards[next++ & (POSITIONS - 1)], direction);
+    }
+}
@@ -0,0 +1,66 @@
+package spw4.game2048;
+
+import org.openjdk.jmh.annotations.*;
+import spw4.game2048.ai.ParallelExpectimax;
+import spw4.game2048.ai.TranspositionTable;
+import spw4.game2048.ai.WeightedHeuristic;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// positions/sec of the fork/join search, run with -p threads=1,2,4,...,N to measure scaling
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelSearchBenchmark {
+
+    private static final int POSITIONS = 16;
+
+    @Param({"1", "2", "4", "8", "16", "32"})
+    public int threads;
+
+    @Param({"4"})
+    public int depth;
+
+    private long[] boards;
+    private ForkJoinPool pool;
+    private TranspositionTable table;
+    private ParallelExpectimax search;
+    private int next;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Positions {
+        public long positions;
+    }
+
+    @Setup
+    public void setUp() {
+        boards = Boards.positions(POSITIONS, 6, 10);
+        pool = new ForkJoinPool(threads);
+        table = new TranspositionTable(ParallelExpectimax.DEFAULT_TABLE_SIZE);
+        search = new ParallelExpectimax(WeightedHeuristic.standard(), depth, table, pool, ParallelExpectimax.DEFAULT_SPLIT_DEPTH);
+    }
+
+    // every search starts cold, otherwise repeated positions would be answered from the table
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        table.clear();
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public Direction search(Positions positions) {
+        long before = search.getNodes();
+        Direction direction = search.search(boards[next++ % POSITIONS]).getDirection();
+        positions.positions += search.getNodes() - before;
+        return direction;
+    }
+}
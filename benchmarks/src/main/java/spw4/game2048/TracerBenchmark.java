@@ -0,0 +1,40 @@
+package spw4.game2048;
+
+import org.openjdk.jmh.annotations.*;
+import spw4.game2048.metrics.Tracer;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TracerBenchmark {
+
+    // 0 is the production default, 1 traces every request
+    @Param({"0", "100", "1"})
+    public int sampleEvery;
+
+    private Tracer tracer;
+
+    @Setup
+    public void setUp() {
+        tracer = new Tracer(1 << 16, sampleEvery);
+    }
+
+    // the calls of one traced move request: begin, five phases and the whole request
+    @Benchmark
+    @Threads(4)
+    public long request() {
+        long trace = tracer.begin();
+        long start = Tracer.now(trace);
+        long next = tracer.span(trace, Tracer.Phase.parse, start);
+        next = tracer.span(trace, Tracer.Phase.lookup, next);
+        next = tracer.span(trace, Tracer.Phase.over, next);
+        next = tracer.span(trace, Tracer.Phase.move, next);
+        tracer.span(trace, Tracer.Phase.render, next);
+        return tracer.span(trace, Tracer.Phase.request, start);
+    }
+}
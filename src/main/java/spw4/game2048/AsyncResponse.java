@@ -0,0 +1,245 @@
+package spw4.game2048;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The response of a request that {@link GameService#dispatch} runs on a request worker, and the listener
+ * of its async context.
+ * <p>
+ * If the async timeout fires or the connection fails first, the request is abandoned: a request still
+ * waiting for a worker is answered with 503 and never runs, and a running one completes as it is. From
+ * then on the container may recycle the response, so this wrapper ignores status and header changes and
+ * fails writes, and the worker must not complete the async context again. Every call that reaches the
+ * wrapped response holds the same lock as abandoning, so none of them can overlap the {@code complete()}.
+ */
+final class AsyncResponse extends HttpServletResponseWrapper implements AsyncListener {
+    private static final int QUEUED = 0;
+    private static final int RUNNING = 1;
+    private static final int FINISHED = 2;
+    private static final int ABANDONED = 3;
+
+    private final AtomicInteger state = new AtomicInteger(QUEUED);
+    // held across every call to the wrapped response, and across abandoning
+    private final Object lock = new Object();
+    private final GameMetrics metrics;
+    private PrintWriter writer;
+    private ServletOutputStream out;
+
+    AsyncResponse(HttpServletResponse response, GameMetrics metrics) {
+        super(response);
+        this.metrics = metrics;
+    }
+
+    // called by the worker before handling; false if the request was abandoned while it waited
+    boolean start() {
+        return state.compareAndSet(QUEUED, RUNNING);
+    }
+
+    // called by the worker after handling; false if the request was abandoned meanwhile
+    boolean finish() {
+        return state.compareAndSet(RUNNING, FINISHED);
+    }
+
+    private boolean abandoned() {
+        return state.get() == ABANDONED;
+    }
+
+    private void checkWritable() throws IOException {
+        if (abandoned()) throw new IOException("request abandoned");
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) throws IOException {
+        abandon(event, true);
+    }
+
+    @Override
+    public void onError(AsyncEvent event) throws IOException {
+        abandon(event, false);
+    }
+
+    private void abandon(AsyncEvent event, boolean answer) throws IOException {
+        synchronized (lock) {
+            int previous = state.getAndUpdate(current -> current == FINISHED ? FINISHED : ABANDONED);
+            if (previous == FINISHED || previous == ABANDONED) return;
+            metrics.abandonedRequest();
+            try {
+                if (answer && previous == QUEUED && !getResponse().isCommitted()) {
+                    HttpServletResponse response = (HttpServletResponse) getResponse();
+                    response.setHeader("Retry-After", "1");
+                    response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                }
+            } finally {
+                event.getAsyncContext().complete();
+            }
+        }
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+    }
+
+    @Override
+    public void setStatus(int status) {
+        synchronized (lock) {
+            if (!abandoned()) super.setStatus(status);
+        }
+    }
+
+    @Override
+    public void sendError(int status) throws IOException {
+        synchronized (lock) {
+            checkWritable();
+            super.sendError(status);
+        }
+    }
+
+    @Override
+    public void sendError(int status, String message) throws IOException {
+        synchronized (lock) {
+            checkWritable();
+            super.sendError(status, message);
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        synchronized (lock) {
+            if (!abandoned()) super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        synchronized (lock) {
+            if (!abandoned()) super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void setContentType(String type) {
+        synchronized (lock) {
+            if (!abandoned()) super.setContentType(type);
+        }
+    }
+
+    @Override
+    public void setContentLength(int length) {
+        synchronized (lock) {
+            if (!abandoned()) super.setContentLength(length);
+        }
+    }
+
+    @Override
+    public void setCharacterEncoding(String charset) {
+        synchronized (lock) {
+            if (!abandoned()) super.setCharacterEncoding(charset);
+        }
+    }
+
+    // an abandoned response counts as committed, nothing can be sent on it any more
+    @Override
+    public boolean isCommitted() {
+        synchronized (lock) {
+            return abandoned() || super.isCommitted();
+        }
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        synchronized (lock) {
+            checkWritable();
+            super.flushBuffer();
+        }
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        synchronized (lock) {
+            checkWritable();
+            if (writer == null) {
+                Writer target = super.getWriter();
+                writer = new PrintWriter(new Writer() {
+                    @Override
+                    public void write(char[] chars, int offset, int length) throws IOException {
+                        synchronized (lock) {
+                            checkWritable();
+                            target.write(chars, offset, length);
+                        }
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        synchronized (lock) {
+                            checkWritable();
+                            target.flush();
+                        }
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        synchronized (lock) {
+                            if (!abandoned()) target.close();
+                        }
+                    }
+                });
+            }
+            return writer;
+        }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        synchronized (lock) {
+            checkWritable();
+            if (out == null) {
+                ServletOutputStream target = super.getOutputStream();
+                out = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        synchronized (lock) {
+                            checkWritable();
+                            target.write(b);
+                        }
+                    }
+
+                    @Override
+                    public void write(byte[] bytes, int offset, int length) throws IOException {
+                        synchronized (lock) {
+                            checkWritable();
+                            target.write(bytes, offset, length);
+                        }
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        synchronized (lock) {
+                            checkWritable();
+                            target.flush();
+                        }
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        synchronized (lock) {
+                            if (!abandoned()) target.close();
+                        }
+                    }
+                };
+            }
+            return out;
+        }
+    }
+}
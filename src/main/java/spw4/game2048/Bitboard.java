@@ -0,0 +1,197 @@
+package spw4.game2048;
+
+/**
+ * Static helpers for a 4x4 board packed into a single {@code long}.
+ * <p>
+ * Every cell is a 4-bit nibble holding the exponent of its tile (0 = empty, 1 = 2, 2 = 4, ... 15 = 32768).
+ * The cell at {@code (row, col)} lives at bit {@code 4 * (4 * row + col)}, so each row is one 16-bit
+ * chunk with column 0 in its lowest nibble.
+ */
+public final class Bitboard {
+
+    public static final int SIZE = 4;
+    public static final int MAX_EXPONENT = 15;
+
+    private static final long ROW_MASK = 0xFFFFL;
+    private static final long NIBBLE_LOW_BITS = 0x1111111111111111L;
+
+    // resulting row and merge score for every possible 16-bit row, indexed by the row itself
+    private static final char[] ROW_LEFT = new char[1 << 16];
+    private static final char[] ROW_RIGHT = new char[1 << 16];
+    private static final int[] ROW_SCORE = new int[1 << 16];
+
+    static {
+        for (int row = 0; row < 1 << 16; row++) {
+            ROW_LEFT[row] = (char) slideRowLeft(row);
+            ROW_RIGHT[row] = (char) slideRowRight(row);
+            ROW_SCORE[row] = rowScore(row);
+        }
+    }
+
+    private Bitboard() {
+    }
+
+    public static int getExponent(long board, int row, int col) {
+        return (int) (board >>> shift(row, col)) & 0xF;
+    }
+
+    public static long setExponent(long board, int row, int col, int exponent) {
+        int shift = shift(row, col);
+        return (board & ~(0xFL << shift)) | ((long) exponent << shift);
+    }
+
+    public static int toValue(int exponent) {
+        return exponent == 0 ? 0 : 1 << exponent;
+    }
+
+    public static int toExponent(int value) {
+        if (value == 0) return 0;
+        int exponent = Integer.numberOfTrailingZeros(value);
+        if (value < 0 || (value & value - 1) != 0 || exponent > MAX_EXPONENT) throw new IllegalArgumentException();
+        return exponent;
+    }
+
+    public static int getRow(long board, int row) {
+        return (int) ((board >>> (16 * row)) & ROW_MASK);
+    }
+
+    public static long transpose(long board) {
+        long a1 = board & 0xF0F00F0FF0F00F0FL;
+        long a2 = board & 0x0000F0F00000F0F0L;
+        long a3 = board & 0x0F0F00000F0F0000L;
+        long a = a1 | (a2 << 12) | (a3 >>> 12);
+        long b1 = a & 0xFF00FF0000FF00FFL;
+        long b2 = a & 0x00FF00FF00000000L;
+        long b3 = a & 0x00000000FF00FF00L;
+        return b1 | (b2 >>> 24) | (b3 << 24);
+    }
+
+    public static long emptyMask(long board) {
+        long x = board;
+        x |= (x >>> 2) & 0x3333333333333333L;
+        x |= (x >>> 1);
+        return ~x & NIBBLE_LOW_BITS;
+    }
+
+    // one bit per empty cell, bit i for cell i in row-major order
+    public static long emptyCells(long board) {
+        long x = emptyMask(board);
+        x = (x | x >>> 3) & 0x0303030303030303L;
+        x = (x | x >>> 6) & 0x000F000F000F000FL;
+        x = (x | x >>> 12) & 0x000000FF000000FFL;
+        return (x | x >>> 24) & 0xFFFFL;
+    }
+
+    public static int countEmpty(long board) {
+        return Long.bitCount(emptyMask(board));
+    }
+
+    public static int maxExponent(long board) {
+        int max = 0;
+        for (int i = 0; i < SIZE * SIZE; i++) {
+            max = Math.max(max, (int) (board >>> (4 * i)) & 0xF);
+        }
+        return max;
+    }
+
+    public static long move(long board, Direction direction) {
+        switch (direction) {
+            case up:
+                return transpose(moveLeft(transpose(board)));
+            case down:
+                return transpose(moveRight(transpose(board)));
+            case left:
+                return moveLeft(board);
+            case right:
+                return moveRight(board);
+        }
+        throw new IllegalArgumentException();
+    }
+
+    // bit i is set if Direction.values()[i] changes the board
+    public static int legalMoves(long board) {
+        long transposed = transpose(board);
+        int legal = 0;
+        if (moveLeft(transposed) != transposed) legal |= 1 << Direction.up.ordinal();
+        if (moveRight(transposed) != transposed) legal |= 1 << Direction.down.ordinal();
+        if (moveLeft(board) != board) legal |= 1 << Direction.left.ordinal();
+        if (moveRight(board) != board) legal |= 1 << Direction.right.ordinal();
+        return legal;
+    }
+
+    public static int score(long board, Direction direction) {
+        if (direction == Direction.up || direction == Direction.down) {
+            board = transpose(board);
+        }
+        return ROW_SCORE[(int) (board & ROW_MASK)]
+                + ROW_SCORE[(int) ((board >>> 16) & ROW_MASK)]
+                + ROW_SCORE[(int) ((board >>> 32) & ROW_MASK)]
+                + ROW_SCORE[(int) (board >>> 48)];
+    }
+
+    private static long moveLeft(long board) {
+        return (long) ROW_LEFT[(int) (board & ROW_MASK)]
+                | (long) ROW_LEFT[(int) ((board >>> 16) & ROW_MASK)] << 16
+                | (long) ROW_LEFT[(int) ((board >>> 32) & ROW_MASK)] << 32
+                | (long) ROW_LEFT[(int) (board >>> 48)] << 48;
+    }
+
+    private static long moveRight(long board) {
+        return (long) ROW_RIGHT[(int) (board & ROW_MASK)]
+                | (long) ROW_RIGHT[(int) ((board >>> 16) & ROW_MASK)] << 16
+                | (long) ROW_RIGHT[(int) ((board >>> 32) & ROW_MASK)] << 32
+                | (long) ROW_RIGHT[(int) (board >>> 48)] << 48;
+    }
+
+    // reference implementations, only used to fill the lookup tables
+    static int slideRowLeft(int row) {
+        int[] cells = new int[SIZE];
+        int count = 0;
+        for (int col = 0; col < SIZE; col++) {
+            int exponent = (row >>> (4 * col)) & 0xF;
+            if (exponent != 0) {
+                cells[count++] = exponent;
+            }
+        }
+
+        int result = 0;
+        int target = 0;
+        for (int i = 0; i < count; i++) {
+            int exponent = cells[i];
+            if (i + 1 < count && cells[i + 1] == exponent && exponent < MAX_EXPONENT) {
+                exponent++;
+                i++;
+            }
+            result |= exponent << (4 * target++);
+        }
+        return result;
+    }
+
+    static int slideRowRight(int row) {
+        return reverseRow(slideRowLeft(reverseRow(row)));
+    }
+
+    static int rowScore(int row) {
+        int score = 0;
+        int previous = 0;
+        for (int col = 0; col < SIZE; col++) {
+            int exponent = (row >>> (4 * col)) & 0xF;
+            if (exponent == 0) continue;
+            if (exponent == previous && exponent < MAX_EXPONENT) {
+                score += 1 << (exponent + 1);
+                previous = 0;
+            } else {
+                previous = exponent;
+            }
+        }
+        return score;
+    }
+
+    static int reverseRow(int row) {
+        return ((row & 0xF) << 12) | ((row & 0xF0) << 4) | ((row >>> 4) & 0xF0) | ((row >>> 12) & 0xF);
+    }
+
+    private static int shift(int row, int col) {
+        return 4 * (SIZE * row + col);
+    }
+}
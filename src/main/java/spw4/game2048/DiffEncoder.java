@@ -0,0 +1,53 @@
+package spw4.game2048;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary diffs of one game against what a client was last sent.
+ * <pre>
+ * byte  flags: 1 = over, 2 = won
+ * int   score
+ * int   moves
+ * byte  n, the number of changed cells
+ * n x   byte cell (row * size + col), byte exponent (0 = empty)
+ * </pre>
+ * The first diff of a new encoder contains every non-empty cell. Any number of moves can lie between
+ * two diffs, so a slow client gets fewer, merged diffs instead of a growing backlog.
+ */
+final class DiffEncoder {
+
+    static final int OVER = 1;
+    static final int WON = 2;
+
+    private final int size;
+    private final int[] sent;
+
+    DiffEncoder(int size) {
+        this.size = size;
+        this.sent = new int[size * size];
+    }
+
+    // the diff since the last call, ready to be read
+    ByteBuffer diff(Game game) {
+        ByteBuffer buffer = ByteBuffer.allocate(10 + 2 * sent.length);
+        buffer.put((byte) ((game.isOver() ? OVER : 0) | (game.isWon() ? WON : 0)))
+                .putInt(game.getScore())
+                .putInt(game.getMoves())
+                .put((byte) 0);
+        int changes = 0;
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int cell = row * size + col;
+                int exponent = Bitboard.toExponent(game.getValueAt(row, col));
+                if (exponent != sent[cell]) {
+                    buffer.put((byte) cell).put((byte) exponent);
+                    sent[cell] = exponent;
+                    changes++;
+                }
+            }
+        }
+        buffer.put(9, (byte) changes);
+        buffer.flip();
+        return buffer;
+    }
+}
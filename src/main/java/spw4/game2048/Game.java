@@ -8,19 +8,58 @@ public class Game {
 
   public static final double PROBABILITY_OF_TWO = 0.9;
   public static final int WINNING_VALUE = 2048;
-  private int[][] board;
-  private Random random;
+  public static final int UNDO_LIMIT = 32;
+  // 4x4 games live in board, all other sizes in rows
+  private final int size;
+  private final int winningExponent;
+  private final PackedRows packed;
+  private long board;
+  private int[] rows;
+  private TileSpawner spawner;
   private int score = 0;
   private int countMoves = 0;
+  private int legalMoves = -1;
+  private int lastSpawn = -1;
+  // ring of the last UNDO_LIMIT positions before a move: the board (4x4) or two rows per long,
+  // then score << 32 | moves
+  private long[] history;
+  private int historyEnd;
+  private int historySize;
 
   public Game() {
-    board = new int[4][4];
-    random = new Random();
+    this(new SplitMixSpawner());
   }
 
   public Game(Random random) {
-    board = new int[4][4];
-    this.random = random;
+    this(new RandomSpawner(random));
+  }
+
+  public Game(TileSpawner spawner) {
+    this(Bitboard.SIZE, WINNING_VALUE, spawner);
+  }
+
+  public Game(int size, int winningValue, TileSpawner spawner) {
+    this.size = size;
+    this.winningExponent = Bitboard.toExponent(winningValue);
+    if (winningExponent < 2) throw new IllegalArgumentException("winning value must be at least 4");
+    if (size == Bitboard.SIZE) {
+      packed = null;
+    } else {
+      packed = PackedRows.forSize(size);
+      rows = new int[size];
+    }
+    this.spawner = spawner;
+  }
+
+  public Game(long board, int score, int moves, Random random) {
+    this(board, score, moves, new RandomSpawner(random));
+  }
+
+  public Game(long board, int score, int moves, TileSpawner spawner) {
+    this(spawner);
+    this.board = board;
+    this.score = score;
+    this.countMoves = moves;
   }
 
   public int getScore() {
@@ -28,41 +67,41 @@ public class Game {
   }
 
   public boolean isOver() {
-    if (canMove(Direction.up)) return false;
-    if (canMove(Direction.down)) return false;
-    if (canMove(Direction.left)) return false;
-    if (canMove(Direction.right)) return false;
-    return true;
+    return getLegalMoves() == 0;
+  }
+
+  public boolean canMove(Direction direction) {
+    return (getLegalMoves() & 1 << direction.ordinal()) != 0;
   }
 
-  private boolean canMove(Direction direction) {
-    int[][] tmpBoard = copyBoard();
-    move(direction);
-    if (!boardsEqual(tmpBoard)) {
-      this.board = tmpBoard;
-      return true;
+  // bit i is set if Direction.values()[i] is a legal move, cached until the board changes
+  public int getLegalMoves() {
+    if (legalMoves < 0) {
+      legalMoves = packed == null ? Bitboard.legalMoves(board) : packed.legalMoves(rows);
     }
-    return false;
+    return legalMoves;
   }
 
   public boolean isWon() {
-    for(int row = 0; row < board.length; row++){
-      for(int col = 0; col < board.length; col++){
-        if(board[row][col] >= WINNING_VALUE){
-          return true;
-        }
-      }
-    }
-    return false;
+    return maxExponent() >= winningExponent;
+  }
+
+  // value of the largest tile, 0 on an empty board
+  public int getMaxValue() {
+    return Bitboard.toValue(maxExponent());
+  }
+
+  private int maxExponent() {
+    return packed == null ? Bitboard.maxExponent(board) : packed.maxExponent(rows);
   }
 
   @Override
   public String toString() {
     StringJoiner joiner = new StringJoiner(String.format("%n"), "", "");
-    for (int i = 0; i < board.length; i++) {
+    for (int i = 0; i < size; i++) {
       StringJoiner row = new StringJoiner("", "", "");
-      for (int j = 0; j < board.length; j++) {
-        row.add(String.format("%5d", board[i][j]));
+      for (int j = 0; j < size; j++) {
+        row.add(String.format("%5d", getValueAt(i, j)));
       }
       joiner.add(row.toString());
     }
@@ -76,219 +115,172 @@ public class Game {
   }
 
   public void clearBoard() {
-    for (int row = 0; row < board.length; row++) {
-      for (int col = 0; col < board.length; col++) {
-        board[row][col] = 0;
-      }
+    if (packed != null) {
+      Arrays.fill(rows, 0);
     }
+    setBoard(0);
+    historySize = 0;
+    lastSpawn = -1;
   }
 
-  private void generateTile() {
-    if (allTilesSet()) return;
-    int randValue = random.nextDouble() <= PROBABILITY_OF_TWO ? 2 : 4;
-    int randRow = Math.abs(random.nextInt()) % board.length;
-    int randCol = Math.abs(random.nextInt()) % board.length;
-
-    while (positionInUse(randRow, randCol)) {
-      randRow++;
-      randRow %= board.length;
-      if (randRow == 0) {
-        randCol++;
-        randCol %= board.length;
-      }
+  void generateTile() {
+    long emptyCells = packed == null ? Bitboard.emptyCells(board) : packed.emptyCells(rows);
+    if (emptyCells == 0) return;
+    int spawn = spawner.spawn(emptyCells, size);
+    lastSpawn = spawn;
+    int cell = spawn >>> 4;
+    if (packed == null) {
+      setBoard(Bitboard.setExponent(board, cell / size, cell % size, spawn & 0xF));
+    } else {
+      packed.setExponent(rows, cell / size, cell % size, spawn & 0xF);
+      changed();
     }
-    board[randRow][randCol] = randValue;
   }
 
-  private boolean allTilesSet() {
-    for (int row = 0; row < board.length; row++) {
-      for (int col = 0; col < board.length; col++) {
-        if (board[row][col] == 0) {
-          return false;
-        }
-      }
+  public boolean move(Direction direction) {
+    if (!canMove(direction)) return false;
+
+    pushHistory();
+    lastSpawn = -1;
+    if (packed == null) {
+      score += Bitboard.score(board, direction);
+      setBoard(Bitboard.move(board, direction));
+    } else {
+      score += packed.move(rows, direction);
+      changed();
     }
+    generateTile();
+    countMoves++;
     return true;
   }
 
-  private boolean positionInUse(int row, int col) {
-    return board[row][col] != 0;
+  public GameSnapshot snapshot() {
+    return packed == null ? new GameSnapshot(board, score, countMoves) : new GameSnapshot(rows, score, countMoves);
   }
 
-  private int[][] copyBoard(){
-    int[][] tmpBoard = new int[board.length][board.length];
-    for(int row = 0; row < board.length; row++){
-      for(int col = 0; col < board.length; col++){
-        tmpBoard[row][col] = this.board[row][col];
-      }
+  // jumps to the snapshot and forgets the undo history
+  public void restore(GameSnapshot snapshot) {
+    if (snapshot.getSize() != size) throw new IllegalArgumentException("snapshot of a different board size");
+    if (packed == null) {
+      setBoard(snapshot.getBoard());
+    } else {
+      snapshot.copyRows(rows);
+      changed();
     }
-    return tmpBoard;
+    score = snapshot.getScore();
+    countMoves = snapshot.getMoves();
+    historySize = 0;
+    lastSpawn = -1;
   }
 
-  private boolean boardsEqual(int[][] otherBoard){
-    for(int row = 0; row < board.length; row++){
-      for(int col = 0; col < board.length; col++){
-        if(board[row][col] != otherBoard[row][col]){
-          return false;
-        }
+  // takes back the last move, at most UNDO_LIMIT times in a row
+  public boolean undo() {
+    if (historySize == 0) return false;
+    int entry = historyEntryLength();
+    historyEnd = (historyEnd + history.length - entry) % history.length;
+    historySize--;
+    if (packed == null) {
+      setBoard(history[historyEnd]);
+    } else {
+      for (int i = 0; i < size; i++) {
+        rows[i] = (int) (history[historyEnd + i / 2] >>> 32 * (i % 2));
       }
+      changed();
     }
+    long scoreAndMoves = history[historyEnd + entry - 1];
+    score = (int) (scoreAndMoves >>> 32);
+    countMoves = (int) scoreAndMoves;
+    lastSpawn = -1;
     return true;
   }
 
-  public void move(Direction direction) {
-    int[][] tmpBoard = copyBoard();
-
-    switch (direction) {
-      case up:
-        moveUp();
-        mergeUp();
-        moveUp();
-        break;
-      case down:
-        moveDown();
-        mergeDown();
-        moveDown();
-        break;
-      case left:
-        moveLeft();
-        mergeLeft();
-        moveLeft();
-        break;
-      case right:
-        moveRight();
-        mergeRight();
-        moveRight();
-        break;
+  public int getUndoDepth() {
+    return historySize;
+  }
+
+  // an independent game at the same position with the same undo history and a split spawner
+  public Game fork() {
+    Game fork = new Game(size, Bitboard.toValue(winningExponent), spawner.split());
+    fork.board = board;
+    if (packed != null) {
+      System.arraycopy(rows, 0, fork.rows, 0, size);
     }
-    if(!boardsEqual(tmpBoard)){
-      generateTile();
-      countMoves++;
+    fork.score = score;
+    fork.countMoves = countMoves;
+    if (history != null) {
+      fork.history = history.clone();
+      fork.historyEnd = historyEnd;
+      fork.historySize = historySize;
     }
+    return fork;
   }
 
-  private void mergeUp(){
-    for(int col = 0; col < board.length; col++){
-      for(int row = 0; row < board.length - 1; row++){
-        if(board[row][col] == board[row + 1][col]){
-          board[row][col] *= 2;
-          score += board[row][col];
-          board[row + 1][col] = 0;
-        }
-      }
-    }
+  private int historyEntryLength() {
+    return packed == null ? 2 : (size + 1) / 2 + 1;
   }
 
-  private void mergeDown(){
-    for(int col = 0; col < board.length; col++){
-      for(int row = board.length - 1; row >= 1; row--){
-        if(board[row][col] == board[row - 1][col]){
-          board[row][col] *= 2;
-          score += board[row][col];
-          board[row - 1][col] = 0;
-        }
+  private void pushHistory() {
+    int entry = historyEntryLength();
+    if (history == null) {
+      history = new long[entry * UNDO_LIMIT];
+    }
+    if (packed == null) {
+      history[historyEnd] = board;
+    } else {
+      for (int i = 0; i < size; i += 2) {
+        long high = i + 1 < size ? (long) rows[i + 1] << 32 : 0;
+        history[historyEnd + i / 2] = high | rows[i] & 0xFFFFFFFFL;
       }
     }
+    history[historyEnd + entry - 1] = (long) score << 32 | countMoves & 0xFFFFFFFFL;
+    historyEnd = (historyEnd + entry) % history.length;
+    historySize = Math.min(historySize + 1, UNDO_LIMIT);
   }
 
-  private void mergeLeft(){
-    for(int row = 0; row < board.length; row++){
-      for(int col = 0; col < board.length - 1; col++){
-        if(board[row][col] == board[row][col + 1]){
-          board[row][col] *= 2;
-          score += board[row][col];
-          board[row][col + 1] = 0;
-        }
-      }
-    }
+  private void setBoard(long board) {
+    this.board = board;
+    changed();
   }
 
-  private void mergeRight(){
-    for(int row = 0; row < board.length; row++){
-      for(int col = board.length - 1; col >= 1; col--){
-        if(board[row][col] == board[row][col - 1]){
-          board[row][col] *= 2;
-          score += board[row][col];
-          board[row][col - 1] = 0;
-        }
-      }
-    }
+  private void changed() {
+    legalMoves = -1;
   }
 
-  private void moveRight() {
-    for (int col = board.length - 1; col >= 0; col--) {
-      for (int row = 0; row < board.length; row++) {
-        if (positionInUse(row, col)) {
-          int newCol = board.length - 1;
-          while (newCol > 0 && positionInUse(row, newCol)) {
-            newCol--;
-          }
-          if (newCol > col) {
-            board[row][newCol] = board[row][col];
-            board[row][col] = 0;
-          }
-        }
-      }
-    }
+  public int getValueAt(int row, int col) {
+    if(row < 0 || row > size - 1 || col < 0 || col > size - 1) throw new IllegalArgumentException();
+    int exponent = packed == null ? Bitboard.getExponent(board, row, col) : packed.getExponent(rows, row, col);
+    return Bitboard.toValue(exponent);
   }
 
-  private void moveLeft() {
-    for (int col = 0; col < board.length; col++) {
-      for (int row = 0; row < board.length; row++) {
-        if (positionInUse(row, col)) {
-          int newCol = 0;
-          while (newCol < board.length && positionInUse(row, newCol)) {
-            newCol++;
-          }
-          if (newCol < col) {
-            board[row][newCol] = board[row][col];
-            board[row][col] = 0;
-          }
-        }
-      }
-    }
+  public int getSize() {
+    return size;
   }
 
-  private void moveDown() {
-    for (int row = board.length - 1; row >= 0; row--) {
-      for (int col = 0; col < board.length; col++) {
-        if (positionInUse(row, col)) {
-          int newRow = board.length - 1;
-          while (newRow > 0 && positionInUse(newRow, col)) {
-            newRow--;
-          }
-          if(newRow > row){
-            board[newRow][col] = board[row][col];
-            board[row][col] = 0;
-          }
-        }
-      }
-    }
+  public int getWinningValue() {
+    return Bitboard.toValue(winningExponent);
   }
 
-  private void moveUp() {
-    for (int row = 0; row < board.length; row++) {
-      for (int col = 0; col < board.length; col++) {
-        if (positionInUse(row, col)) {
-          int newRow = 0;
-          while (newRow < board.length && positionInUse(newRow, col)) {
-            newRow++;
-          }
-          if(newRow < row){
-            board[newRow][col] = board[row][col];
-            board[row][col] = 0;
-          }
-        }
-      }
-    }
+  // 4x4 with the default winning value, the only games the binary stores and the journal can hold
+  public boolean isStandard() {
+    return packed == null && getWinningValue() == WINNING_VALUE;
   }
 
-  public int getValueAt(int row, int col) {
-    if(row < 0 || row > board.length - 1 || col < 0 || col > board.length - 1) throw new IllegalArgumentException();
-    return board[row][col];
+  // the packed bitboard, only for 4x4 games
+  public long getBoard() {
+    if (packed != null) throw new IllegalStateException("only 4x4 games have a packed board");
+    return board;
+  }
+
+  // cell << 4 | exponent of the tile added by the last move or generateTile, -1 if there was none
+  public int getLastSpawn() {
+    return lastSpawn;
+  }
+
+  public TileSpawner getSpawner() {
+    return spawner;
   }
 
   public int getMoves() {
     return countMoves;
   }
-}
\ No newline at end of file
+}
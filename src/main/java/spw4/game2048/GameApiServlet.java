@@ -0,0 +1,157 @@
+package spw4.game2048;
+
+import spw4.game2048.metrics.Tracer;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * JSON API for clients that render the board themselves.
+ * <pre>
+ * POST /api/games[?size=4&amp;target=2048]     new game, full state
+ * GET  /api/games/{id}                      full state
+ * POST /api/games/{id}/moves?direction=left  move, only what changed
+ * </pre>
+ * See {@link GameJson} for the payloads.
+ */
+@WebServlet(value = "/api/games/*", asyncSupported = true)
+public class GameApiServlet extends HttpServlet {
+    private GameService service;
+
+    @Override
+    public void init() throws ServletException {
+        super.init();
+        service = GameService.get(getServletContext());
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        service.dispatch(request, response, this::get);
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        service.dispatch(request, response, this::post);
+    }
+
+    private void get(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String[] path = path(request);
+        if (path.length != 1) {
+            error(response, HttpServletResponse.SC_NOT_FOUND, "unknown resource");
+            return;
+        }
+        UUID id = parseId(path[0]);
+        if (id == null) {
+            error(response, HttpServletResponse.SC_BAD_REQUEST, "invalid game id");
+            return;
+        }
+        String json = service.withGame(id, game -> GameJson.state(id, game));
+        if (json == null) {
+            error(response, HttpServletResponse.SC_NOT_FOUND, "unknown game");
+            return;
+        }
+        send(response, HttpServletResponse.SC_OK, json);
+    }
+
+    private void post(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String[] path = path(request);
+        if (path.length == 0) {
+            newGame(request, response);
+        } else if (path.length == 2 && "moves".equals(path[1])) {
+            move(request, response, path[0]);
+        } else {
+            error(response, HttpServletResponse.SC_NOT_FOUND, "unknown resource");
+        }
+    }
+
+    private void newGame(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Game game;
+        UUID id = UUID.randomUUID();
+        try {
+            int size = intParameter(request, "size", Bitboard.SIZE);
+            int target = intParameter(request, "target", Game.WINNING_VALUE);
+            game = service.newGame(id, size, target);
+        } catch (IllegalArgumentException e) {
+            error(response, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        response.setHeader("Location", request.getRequestURL().append('/').append(id).toString());
+        send(response, HttpServletResponse.SC_CREATED, GameJson.state(id, game));
+    }
+
+    private void move(HttpServletRequest request, HttpServletResponse response, String idString) throws IOException {
+        Tracer tracer = service.tracer();
+        long trace = tracer.begin();
+        long start = Tracer.now(trace);
+        UUID id = parseId(idString);
+        Direction direction = parseDirection(request.getParameter("direction"));
+        if (id == null || direction == null) {
+            error(response, HttpServletResponse.SC_BAD_REQUEST, id == null ? "invalid game id" : "invalid direction");
+            return;
+        }
+        long lookup = tracer.span(trace, Tracer.Phase.parse, start);
+        String json = service.withGame(id, game -> {
+            tracer.span(trace, Tracer.Phase.lookup, lookup);
+            int[] before = GameJson.values(game);
+            int score = game.getScore();
+            boolean moved = service.move(id, game, direction, trace);
+            long render = Tracer.now(trace);
+            String result = GameJson.move(game, before, score, moved);
+            tracer.span(trace, Tracer.Phase.render, render);
+            return result;
+        }, trace);
+        if (json == null) {
+            error(response, HttpServletResponse.SC_NOT_FOUND, "unknown game");
+            return;
+        }
+        long write = Tracer.now(trace);
+        send(response, HttpServletResponse.SC_OK, json);
+        tracer.span(trace, Tracer.Phase.write, write);
+        tracer.span(trace, Tracer.Phase.request, start);
+    }
+
+    private static String[] path(HttpServletRequest request) {
+        String info = request.getPathInfo();
+        if (info == null || info.equals("/")) return new String[0];
+        return info.substring(1).split("/");
+    }
+
+    private static UUID parseId(String id) {
+        try {
+            return UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static Direction parseDirection(String direction) {
+        if (direction == null) return null;
+        try {
+            return Direction.valueOf(direction);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static int intParameter(HttpServletRequest request, String name, int defaultValue) {
+        String value = request.getParameter(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private void error(HttpServletResponse response, int status, String message) throws IOException {
+        service.metrics().invalidRequest();
+        send(response, status, "{\"error\":\"" + message.replace("\\", "\\\\").replace("\"", "\\\"") + "\"}");
+    }
+
+    private static void send(HttpServletResponse response, int status, String json) throws IOException {
+        response.setStatus(status);
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().print(json);
+    }
+}
@@ -0,0 +1,118 @@
+package spw4.game2048;
+
+import spw4.game2048.ai.SearchResult;
+import spw4.game2048.leaderboard.Score;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * JSON payloads of the game API.
+ * <p>
+ * A full state lists all cell values row by row. A move answers with the cells the slide changed as
+ * {@code [cell, value]} pairs, the spawned tile separately, and the score delta, so a client applies
+ * the changes and then the spawn. Cells are numbered {@code row * size + col}. The leaderboard lists
+ * scores best first with their rank. A hint names the best direction, null if there is no move, with
+ * its expected heuristic value and the search depth behind it.
+ */
+final class GameJson {
+
+    private GameJson() {
+    }
+
+    static String state(UUID id, Game game) {
+        StringBuilder sb = new StringBuilder(64 + 8 * game.getSize() * game.getSize());
+        sb.append("{\"id\":\"").append(id)
+                .append("\",\"size\":").append(game.getSize())
+                .append(",\"target\":").append(game.getWinningValue())
+                .append(",\"score\":").append(game.getScore())
+                .append(",\"moves\":").append(game.getMoves())
+                .append(",\"cells\":[");
+        int[] values = values(game);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(values[i]);
+        }
+        sb.append(']');
+        appendStatus(sb, game);
+        return sb.append('}').toString();
+    }
+
+    // before holds the cell values and scoreBefore the score from before the move
+    static String move(Game game, int[] before, int scoreBefore, boolean moved) {
+        int spawn = moved ? game.getLastSpawn() : -1;
+        int spawnCell = spawn < 0 ? -1 : spawn >>> 4;
+        StringBuilder sb = new StringBuilder(128);
+        sb.append("{\"moved\":").append(moved)
+                .append(",\"score\":").append(game.getScore())
+                .append(",\"scoreDelta\":").append(game.getScore() - scoreBefore)
+                .append(",\"moves\":").append(game.getMoves())
+                .append(",\"changes\":[");
+        int[] after = values(game);
+        boolean first = true;
+        for (int cell = 0; cell < after.length; cell++) {
+            if (after[cell] == before[cell] || cell == spawnCell) continue;
+            if (!first) sb.append(',');
+            sb.append('[').append(cell).append(',').append(after[cell]).append(']');
+            first = false;
+        }
+        sb.append("],\"spawn\":");
+        if (spawn < 0) {
+            sb.append("null");
+        } else {
+            sb.append('[').append(spawnCell).append(',').append(Bitboard.toValue(spawn & 0xF)).append(']');
+        }
+        appendStatus(sb, game);
+        return sb.append('}').toString();
+    }
+
+    private static void appendStatus(StringBuilder sb, Game game) {
+        sb.append(",\"over\":").append(game.isOver()).append(",\"won\":").append(game.isWon());
+    }
+
+    // scores best first; finished is an ISO-8601 instant
+    static String leaderboard(List<Score> scores) {
+        StringBuilder sb = new StringBuilder(32 + 160 * scores.size());
+        sb.append("{\"scores\":[");
+        for (int i = 0; i < scores.size(); i++) {
+            Score score = scores.get(i);
+            if (i > 0) sb.append(',');
+            sb.append("{\"rank\":").append(i + 1)
+                    .append(",\"id\":\"").append(score.getId())
+                    .append("\",\"score\":").append(score.getScore())
+                    .append(",\"moves\":").append(score.getMoves())
+                    .append(",\"size\":").append(score.getSize())
+                    .append(",\"maxValue\":").append(score.getMaxValue())
+                    .append(",\"won\":").append(score.isWon())
+                    .append(",\"finished\":\"").append(Instant.ofEpochMilli(score.getFinishedAt()))
+                    .append("\"}");
+        }
+        return sb.append("]}").toString();
+    }
+
+    static String hint(SearchResult hint) {
+        StringBuilder sb = new StringBuilder(64);
+        sb.append("{\"direction\":");
+        if (hint.getDirection() == null) {
+            sb.append("null");
+        } else {
+            sb.append('"').append(hint.getDirection()).append('"');
+        }
+        return sb.append(",\"value\":").append(hint.getValue())
+                .append(",\"depth\":").append(hint.getDepth())
+                .append('}').toString();
+    }
+
+    // cell values row by row
+    static int[] values(Game game) {
+        int size = game.getSize();
+        int[] values = new int[size * size];
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                values[row * size + col] = game.getValueAt(row, col);
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,142 @@
+package spw4.game2048;
+
+import spw4.game2048.ai.IterativeDeepening;
+import spw4.game2048.metrics.Histogram;
+import spw4.game2048.metrics.Metrics;
+import spw4.game2048.store.GameStore;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics of the web application, updated by {@link GameService} and the servlets and exported
+ * by {@link MetricsServlet} and over JMX.
+ * <p>
+ * Moves are counted where requests apply them rather than inside {@link Game}, so simulations and
+ * searches that play millions of moves pay nothing for them.
+ */
+public class GameMetrics {
+    private final Metrics registry = new Metrics();
+    private final LongAdder[] moves = new LongAdder[Direction.values().length];
+    private final LongAdder noopMoves;
+    private final LongAdder overChecks;
+    private final LongAdder overGames;
+    private final LongAdder newGames;
+    private final LongAdder finishedGames;
+    private final LongAdder invalidRequests;
+    private final LongAdder failedRequests;
+    private final LongAdder rejectedRequests;
+    private final LongAdder abandonedRequests;
+    private final Histogram renderTime;
+    private final Histogram requestTime;
+    private final LongAdder hintHits;
+    private final LongAdder hintMisses;
+    private final LongAdder[] hintDepths = new LongAdder[IterativeDeepening.DEFAULT_MAX_DEPTH];
+    private final Histogram hintTime;
+    private final AtomicInteger sockets = new AtomicInteger();
+
+    public GameMetrics(GameStore games) {
+        for (Direction direction : Direction.values()) {
+            moves[direction.ordinal()] = registry.counter("game2048_moves_total", "direction=\"" + direction + "\"",
+                    "Moves that changed the board, by direction.");
+        }
+        noopMoves = registry.counter("game2048_noop_moves_total", "Moves that did not change the board.");
+        overChecks = registry.counter("game2048_over_checks_total", "Checks whether a game is over before a move.");
+        overGames = registry.counter("game2048_over_moves_total", "Moves rejected because the game was over.");
+        newGames = registry.counter("game2048_games_created_total", "Games started.");
+        finishedGames = registry.counter("game2048_games_finished_total",
+                "Games that ended, each submitted to the leaderboard.");
+        registry.gauge("game2048_games", "Games in the store, the active sessions.", games::size);
+        registry.gauge("game2048_sockets", "Open WebSocket connections.", sockets::get);
+        registry.counter("game2048_evictions_total", "Games dropped from the store because they expired or did not fit.",
+                games::getEvictions);
+        invalidRequests = registry.counter("game2048_errors_total", "type=\"invalid\"", "Requests that failed.");
+        failedRequests = registry.counter("game2048_errors_total", "type=\"failed\"", "Requests that failed.");
+        rejectedRequests = registry.counter("game2048_errors_total", "type=\"rejected\"", "Requests that failed.");
+        abandonedRequests = registry.counter("game2048_errors_total", "type=\"abandoned\"", "Requests that failed.");
+        renderTime = registry.histogram("game2048_render_seconds", "Time to render a game page.");
+        requestTime = registry.histogram("game2048_request_seconds", "Time from accepting a request to completing it.");
+        hintHits = registry.counter("game2048_hint_cache_total", "result=\"hit\"", "Hints looked up in the cache.");
+        hintMisses = registry.counter("game2048_hint_cache_total", "result=\"miss\"", "Hints looked up in the cache.");
+        for (int depth = 1; depth <= hintDepths.length; depth++) {
+            hintDepths[depth - 1] = registry.counter("game2048_hint_depth_total", "depth=\"" + depth + "\"",
+                    "Hint searches by the depth they reached within the time budget.");
+        }
+        hintTime = registry.histogram("game2048_hint_seconds", "Time to answer a hint, from the cache or by searching.");
+    }
+
+    public Metrics registry() {
+        return registry;
+    }
+
+    void overCheck(boolean over) {
+        overChecks.increment();
+        if (over) overGames.increment();
+    }
+
+    void move(Direction direction, boolean moved) {
+        if (moved) {
+            moves[direction.ordinal()].increment();
+        } else {
+            noopMoves.increment();
+        }
+    }
+
+    void newGame() {
+        newGames.increment();
+    }
+
+    void gameOver() {
+        finishedGames.increment();
+    }
+
+    // a request with bad parameters or for an unknown game
+    void invalidRequest() {
+        invalidRequests.increment();
+    }
+
+    // a request that threw
+    void failedRequest() {
+        failedRequests.increment();
+    }
+
+    // a request turned away because all workers were busy
+    void rejectedRequest() {
+        rejectedRequests.increment();
+    }
+
+    void hintHit() {
+        hintHits.increment();
+    }
+
+    // a hint that had to be searched, and the depth the search reached
+    void hintSearched(int depth) {
+        hintMisses.increment();
+        hintDepths[Math.min(depth, hintDepths.length) - 1].increment();
+    }
+
+    // a request whose async context timed out or failed before its worker was done
+    void abandonedRequest() {
+        abandonedRequests.increment();
+    }
+
+    Histogram renderTime() {
+        return renderTime;
+    }
+
+    Histogram requestTime() {
+        return requestTime;
+    }
+
+    Histogram hintTime() {
+        return hintTime;
+    }
+
+    void socketOpened() {
+        sockets.incrementAndGet();
+    }
+
+    void socketClosed() {
+        sockets.decrementAndGet();
+    }
+}
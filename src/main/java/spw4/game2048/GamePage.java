@@ -0,0 +1,278 @@
+package spw4.game2048;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.UnaryOperator;
+
+/**
+ * HTML page of one game, rendered from byte fragments that are encoded once.
+ * <p>
+ * The page template is split at its placeholders when the class loads; rendering copies the fragments
+ * and writes the numbers and the id as ASCII digits straight into a reusable buffer, so a page costs
+ * no allocations once the buffer has grown to page size. The buffer also gives the Content-Length.
+ * Instances are not thread-safe, keep one per thread.
+ */
+final class GamePage {
+
+    private static final String TEMPLATE = ""
+            + "<!DOCTYPE html>\n"
+            + "<html lang=\"en\">\n"
+            + "<head>\n"
+            + "    <meta charset=\"UTF-8\">\n"
+            + "    <title>2048</title>\n"
+            + "    <link href=\"{asset0}\" rel=\"stylesheet\"/>\n"
+            + "    <link href=\"{asset1}\" rel=\"stylesheet\"/>\n"
+            + "    <script src=\"{asset2}\"></script>\n"
+            + "</head>\n"
+            + "<body>\n"
+            + "    <h1 class=\"m-5 text-center\">Play 2048:</h1>\n"
+            + "\n"
+            + "    <div class=\"row\">\n"
+            + "        <div class=\"col-4\"></div>\n"
+            + "        <div class=\"col\">\n"
+            + "            <div class=\"row\">\n"
+            + "                <div class=\"col text-center pb-4\"><h5>Moves: {moves}</h5></div>\n"
+            + "                <div class=\"col text-center pb-4\"><h5>Score: {score}</h5></div>\n"
+            + "            </div>\n"
+            + "{status}"
+            + "            <div class=\"row\">\n"
+            + "                <div class=\"col-2\"></div>\n"
+            + "                <div class=\"col text-center pb-4\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id={id}&action=up\"><i class=\"bi-arrow-up\"></i></a></div>\n"
+            + "                <div class=\"col-2\"></div>\n"
+            + "            </div>\n"
+            + "            <div class=\"row\">\n"
+            + "                <div class=\"col-2 my-auto text-right\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id={id}&action=left\"><i class=\"bi-arrow-left\"></i></a></div>\n"
+            + "                <div class=\"col\">\n"
+            + "                    <div class=\"container text-center bg-secondary\">\n"
+            + "{board}"
+            + "                    </div>\n"
+            + "                </div>\n"
+            + "                <div class=\"col-2 my-auto\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id={id}&action=right\"><i class=\"bi-arrow-right\"></i></a></div>\n"
+            + "            </div>\n"
+            + "            <div class=\"row\">\n"
+            + "                <div class=\"col-2\"></div>\n"
+            + "                <div class=\"col text-center pt-4\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id={id}&action=down\"><i class=\"bi-arrow-down\"></i></a></div>\n"
+            + "                <div class=\"col-2\"></div>\n"
+            + "            </div>\n"
+            + "            <div class=\"row\">\n"
+            + "                <div class=\"col text-center pt-4\"><a role=\"button\" class=\"btn btn-danger w-75\" href=\"Game?action=new{newGame}\">New Game</a></div>\n"
+            + "                <div class=\"col text-center pt-4\"><a role=\"button\" class=\"btn btn-info w-75\" href=\"Game?id={id}\">Refresh</a></div>\n"
+            + "            </div>\n"
+            + "        </div>\n"
+            + "        <div class=\"col-4\"></div>\n"
+            + "    </div>\n"
+            + "</body>\n"
+            + "</html>\n";
+
+    private static final int MOVES = 0;
+    private static final int SCORE = 1;
+    private static final int STATUS = 2;
+    private static final int ID = 3;
+    private static final int BOARD = 4;
+    private static final int NEW_GAME = 5;
+    private static final int ASSET = 6;
+    private static final String[] PLACEHOLDERS = {"{moves}", "{score}", "{status}", "{id}", "{board}", "{newGame}",
+            "{asset0}", "{asset1}", "{asset2}"};
+
+    // static files the page links to, in the order of the {assetN} placeholders
+    static final String[] ASSETS = {"css/bootstrap.min.css", "icons/bootstrap-icons.css", "js/bootstrap.min.js"};
+
+    // FRAGMENTS[i] is followed by the placeholder SLOTS[i], the last fragment by nothing
+    private static final byte[][] FRAGMENTS;
+    private static final int[] SLOTS;
+
+    private static final byte[] WIN = bytes(""
+            + "            <div class=\"row\">\n"
+            + "                <div class=\"col text-center pb-4\"><h1><span class=\"badge badge-success w-75\">YOU WIN</span></h1></div>\n"
+            + "            </div>\n");
+    private static final byte[] LOSE = bytes(""
+            + "            <div class=\"row\">\n"
+            + "                <div class=\"col text-center pb-4\"><h1><span class=\"badge badge-danger w-75\">YOU LOSE</span></h1></div>\n"
+            + "            </div>\n");
+    private static final byte[] ROW_OPEN = bytes("                        <div class=\"row\">\n");
+    private static final byte[] ROW_CLOSE = bytes("                        </div>\n");
+    private static final byte[] CELL_OPEN = bytes("                            <div class=\"col mt-1 ml-1");
+    private static final byte[] LAST_ROW = bytes(" mb-1");
+    private static final byte[] LAST_COL = bytes(" mr-1");
+    private static final byte[] CELL_VALUE = bytes(" bg-light\">");
+    private static final byte[] CELL_CLOSE = bytes("</div>\n");
+    private static final byte[] SIZE_PARAMETER = bytes("&size=");
+    private static final byte[] TARGET_PARAMETER = bytes("&target=");
+    private static final byte[] HEX = bytes("0123456789abcdef");
+
+    static {
+        byte[][] fragments = new byte[16][];
+        int[] slots = new int[16];
+        int count = 0;
+        int start = 0;
+        while (true) {
+            int next = -1;
+            int slot = -1;
+            for (int i = 0; i < PLACEHOLDERS.length; i++) {
+                int index = TEMPLATE.indexOf(PLACEHOLDERS[i], start);
+                if (index >= 0 && (next < 0 || index < next)) {
+                    next = index;
+                    slot = i;
+                }
+            }
+            if (next < 0) break;
+            fragments[count] = bytes(TEMPLATE.substring(start, next));
+            slots[count++] = slot;
+            start = next + PLACEHOLDERS[slot].length();
+        }
+        fragments[count] = bytes(TEMPLATE.substring(start));
+        FRAGMENTS = Arrays.copyOf(fragments, count + 1);
+        SLOTS = Arrays.copyOf(slots, count);
+    }
+
+    private final byte[][] assetUrls = new byte[ASSETS.length][];
+    private final int revision;
+    private byte[] buffer = new byte[8192];
+    private int length;
+
+    GamePage() {
+        this(UnaryOperator.identity());
+    }
+
+    // assetUrl maps each of ASSETS to the URL to link, e.g. with a fingerprint
+    GamePage(UnaryOperator<String> assetUrl) {
+        int hash = TEMPLATE.hashCode();
+        for (int i = 0; i < ASSETS.length; i++) {
+            String url = assetUrl.apply(ASSETS[i]);
+            assetUrls[i] = bytes(url);
+            hash = 31 * hash + url.hashCode();
+        }
+        revision = hash;
+    }
+
+    // changes whenever the markup or an asset URL does, part of the page ETags
+    int revision() {
+        return revision;
+    }
+
+    // renders the page into the internal buffer, replacing what was rendered before
+    GamePage render(UUID id, Game game) {
+        length = 0;
+        for (int i = 0; i < SLOTS.length; i++) {
+            write(FRAGMENTS[i]);
+            switch (SLOTS[i]) {
+                case MOVES:
+                    writeInt(game.getMoves());
+                    break;
+                case SCORE:
+                    writeInt(game.getScore());
+                    break;
+                case STATUS:
+                    if (game.isOver()) write(game.isWon() ? WIN : LOSE);
+                    break;
+                case ID:
+                    writeUuid(id);
+                    break;
+                case BOARD:
+                    writeBoard(game);
+                    break;
+                case NEW_GAME:
+                    if (!game.isStandard()) {
+                        write(SIZE_PARAMETER);
+                        writeInt(game.getSize());
+                        write(TARGET_PARAMETER);
+                        writeInt(game.getWinningValue());
+                    }
+                    break;
+                default:
+                    write(assetUrls[SLOTS[i] - ASSET]);
+                    break;
+            }
+        }
+        write(FRAGMENTS[SLOTS.length]);
+        return this;
+    }
+
+    int length() {
+        return length;
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, length);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    private void writeBoard(Game game) {
+        int size = game.getSize();
+        for (int row = 0; row < size; row++) {
+            write(ROW_OPEN);
+            for (int col = 0; col < size; col++) {
+                write(CELL_OPEN);
+                if (row == size - 1) write(LAST_ROW);
+                if (col == size - 1) write(LAST_COL);
+                write(CELL_VALUE);
+                writeInt(game.getValueAt(row, col));
+                write(CELL_CLOSE);
+            }
+            write(ROW_CLOSE);
+        }
+    }
+
+    private void write(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void writeInt(int value) {
+        ensureCapacity(11);
+        long v = value;
+        if (v < 0) {
+            buffer[length++] = '-';
+            v = -v;
+        }
+        int digits = 1;
+        for (long p = 10; p <= v; p *= 10) {
+            digits++;
+        }
+        for (int i = length + digits - 1; i >= length; i--) {
+            buffer[i] = (byte) ('0' + v % 10);
+            v /= 10;
+        }
+        length += digits;
+    }
+
+    // same text as UUID.toString()
+    private void writeUuid(UUID id) {
+        ensureCapacity(36);
+        writeHex(id.getMostSignificantBits() >>> 32, 8);
+        buffer[length++] = '-';
+        writeHex(id.getMostSignificantBits() >>> 16, 4);
+        buffer[length++] = '-';
+        writeHex(id.getMostSignificantBits(), 4);
+        buffer[length++] = '-';
+        writeHex(id.getLeastSignificantBits() >>> 48, 4);
+        buffer[length++] = '-';
+        writeHex(id.getLeastSignificantBits(), 12);
+    }
+
+    private void writeHex(long bits, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            buffer[length + i] = HEX[(int) bits & 0xF];
+            bits >>>= 4;
+        }
+        length += digits;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(2 * buffer.length, length + extra));
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,365 @@
+package spw4.game2048;
+
+import spw4.game2048.ai.HintCache;
+import spw4.game2048.ai.IterativeDeepening;
+import spw4.game2048.ai.SearchResult;
+import spw4.game2048.ai.WeightedHeuristic;
+import spw4.game2048.leaderboard.Leaderboard;
+import spw4.game2048.metrics.Tracer;
+import spw4.game2048.store.GameStore;
+import spw4.game2048.store.MappedGameStore;
+import spw4.game2048.store.MoveJournal;
+import spw4.game2048.store.OffHeapGameStore;
+import spw4.game2048.store.StripedGameStore;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * The game store, move journal, request executor, metrics, leaderboard and hints shared by all servlets of
+ * the web application.
+ * <p>
+ * Created on first use from the context init parameters {@code maxGames}, {@code idleMinutes},
+ * {@code store} ({@code offheap}, {@code mapped} or in-memory by default), {@code storeFile},
+ * {@code journal}, {@code requestThreads}, {@code requestQueue}, {@code traceSample}, {@code traceCapacity},
+ * {@code leaderboardSize}, {@code hintCache} and {@code hintMillis}, and closed by
+ * {@link GameServiceListener} when the application stops.
+ * <p>
+ * Game requests run on the container thread by default. If {@code requestThreads} is set, they run
+ * asynchronously on a bounded pool of that many workers instead, so container threads are not held while
+ * a request waits for the journal's fsync. At most {@code requestQueue} requests wait for a worker; beyond
+ * that requests are answered with 503, and a request still queued when its async context times out is
+ * answered with 503 and dropped. Under load tests the container's own pool did better, so the workers are
+ * off by default. Requests for the same game are serialized by the store's per-game lock.
+ * <p>
+ * The {@link GameMetrics} are also registered over JMX as {@code spw4.game2048:type=Metrics,context=<path>}.
+ * One in {@code traceSample} requests is traced into a {@link Tracer} of {@code traceCapacity} spans;
+ * tracing is off by default and can be switched on at runtime through {@link TraceServlet}.
+ * <p>
+ * Hints are looked up in a {@link HintCache} of {@code hintCache} boards, since many players pass through
+ * the same early positions, and otherwise searched by {@link IterativeDeepening} for about {@code hintMillis}.
+ */
+public class GameService implements Closeable {
+    private static final String ATTRIBUTE = GameService.class.getName();
+    private static final int DEFAULT_MAX_GAMES = 100_000;
+    private static final int DEFAULT_IDLE_MINUTES = 60;
+    // no workers, requests run on the container thread
+    private static final int DEFAULT_REQUEST_THREADS = 0;
+    private static final int DEFAULT_REQUEST_QUEUE = 10_000;
+    private static final long ASYNC_TIMEOUT_MILLIS = 30_000;
+    private static final int DEFAULT_TRACE_CAPACITY = 1 << 16;
+    private static final int DEFAULT_HINT_CACHE = 100_000;
+    private static final int DEFAULT_HINT_MILLIS = 50;
+
+    private final GameStore games;
+    private final MoveJournal journal;
+    // binary stores and the journal only hold standard 4x4 games
+    private final boolean standardOnly;
+    // null without workers
+    private final ThreadPoolExecutor requests;
+    private final GameMetrics metrics;
+    private final Tracer tracer;
+    private final Leaderboard leaderboard;
+    private final HintCache hintCache;
+    private final IterativeDeepening hints = new IterativeDeepening(WeightedHeuristic.standard());
+    private final long hintNanos;
+    // sequence number of the last journal record this thread appended in withGame, 0 if it is awaited
+    private final ThreadLocal<long[]> unsynced = ThreadLocal.withInitial(() -> new long[1]);
+
+    public GameService(GameStore games, MoveJournal journal, int requestThreads, int requestQueue) {
+        this(games, journal, requestThreads, requestQueue, new Tracer(DEFAULT_TRACE_CAPACITY, 0), new Leaderboard(),
+                new HintCache(DEFAULT_HINT_CACHE), DEFAULT_HINT_MILLIS);
+    }
+
+    public GameService(GameStore games, MoveJournal journal, int requestThreads, int requestQueue, Tracer tracer,
+                       Leaderboard leaderboard, HintCache hintCache, int hintMillis) {
+        this.games = games;
+        this.journal = journal;
+        this.standardOnly = journal != null || !(games instanceof StripedGameStore);
+        if (requestThreads > 0) {
+            AtomicInteger workers = new AtomicInteger();
+            requests = new ThreadPoolExecutor(requestThreads, requestThreads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(requestQueue), runnable -> {
+                        Thread thread = new Thread(runnable, "game-request-" + workers.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            requests.allowCoreThreadTimeOut(true);
+        } else {
+            requests = null;
+        }
+        metrics = new GameMetrics(games);
+        this.tracer = tracer;
+        this.leaderboard = leaderboard;
+        this.hintCache = hintCache;
+        this.hintNanos = TimeUnit.MILLISECONDS.toNanos(hintMillis);
+    }
+
+    @FunctionalInterface
+    public interface RequestHandler {
+        void handle(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException;
+    }
+
+    public static GameService get(ServletContext context) throws ServletException {
+        synchronized (context) {
+            GameService service = (GameService) context.getAttribute(ATTRIBUTE);
+            if (service == null) {
+                service = create(context);
+                context.setAttribute(ATTRIBUTE, service);
+            }
+            return service;
+        }
+    }
+
+    // the service of the context, or null if none was created
+    static GameService remove(ServletContext context) {
+        synchronized (context) {
+            GameService service = (GameService) context.getAttribute(ATTRIBUTE);
+            context.removeAttribute(ATTRIBUTE);
+            return service;
+        }
+    }
+
+    private static GameService create(ServletContext context) throws ServletException {
+        int maxGames = intParameter(context, "maxGames", DEFAULT_MAX_GAMES);
+        int idleMinutes = intParameter(context, "idleMinutes", DEFAULT_IDLE_MINUTES);
+        String store = context.getInitParameter("store");
+        GameStore games;
+        if ("offheap".equals(store)) {
+            games = new OffHeapGameStore(maxGames, idleMinutes * 60_000L);
+        } else if ("mapped".equals(store)) {
+            String file = context.getInitParameter("storeFile");
+            Path path = file != null ? Paths.get(file) : Paths.get(System.getProperty("java.io.tmpdir"), "game2048.store");
+            try {
+                games = new MappedGameStore(path, maxGames, idleMinutes * 60_000L);
+            } catch (IOException e) {
+                throw new ServletException("cannot open game store " + path, e);
+            }
+        } else {
+            games = new StripedGameStore(maxGames, idleMinutes * 60_000L);
+        }
+
+        MoveJournal journal = null;
+        String journalFile = context.getInitParameter("journal");
+        if (journalFile != null) {
+            Path path = Paths.get(journalFile);
+            try {
+                long ttlMillis = idleMinutes * 60_000L;
+                int recovered = MoveJournal.recover(path, games, maxGames, ttlMillis, System.currentTimeMillis());
+                context.log("recovered " + recovered + " games from " + path);
+                journal = new MoveJournal(path, maxGames, ttlMillis);
+            } catch (IOException e) {
+                throw new ServletException("cannot open move journal " + path, e);
+            }
+        }
+        GameService service = new GameService(games, journal,
+                intParameter(context, "requestThreads", DEFAULT_REQUEST_THREADS),
+                intParameter(context, "requestQueue", DEFAULT_REQUEST_QUEUE),
+                new Tracer(intParameter(context, "traceCapacity", DEFAULT_TRACE_CAPACITY),
+                        intParameter(context, "traceSample", 0)),
+                new Leaderboard(intParameter(context, "leaderboardSize", Leaderboard.DEFAULT_CAPACITY),
+                        System::currentTimeMillis),
+                new HintCache(intParameter(context, "hintCache", DEFAULT_HINT_CACHE)),
+                intParameter(context, "hintMillis", DEFAULT_HINT_MILLIS));
+        try {
+            service.metrics.registry().registerMBean(new ObjectName("spw4.game2048:type=Metrics,context="
+                    + ObjectName.quote(context.getContextPath())));
+        } catch (JMException e) {
+            context.log("cannot register metrics MBean", e);
+        }
+        return service;
+    }
+
+    private static int intParameter(ServletContext context, String name, int defaultValue) {
+        String value = context.getInitParameter(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    // puts the request into async mode and handles it on a request worker, or answers 503 if all are busy.
+    // A request that times out or fails before the worker is done is abandoned, see AsyncResponse.
+    // Without workers the request is handled right away on the calling thread.
+    public void dispatch(HttpServletRequest request, HttpServletResponse response, RequestHandler handler) throws IOException {
+        long start = System.nanoTime();
+        if (requests == null) {
+            try {
+                handle(request, response, handler);
+            } finally {
+                metrics.requestTime().recordSince(start);
+            }
+            return;
+        }
+        AsyncContext async = request.startAsync();
+        async.setTimeout(ASYNC_TIMEOUT_MILLIS);
+        AsyncResponse guarded = new AsyncResponse(response, metrics);
+        async.addListener(guarded);
+        try {
+            requests.execute(() -> {
+                // abandoned while queued, already answered by the listener
+                if (!guarded.start()) return;
+                try {
+                    handle(request, guarded, handler);
+                } finally {
+                    if (guarded.finish()) async.complete();
+                    metrics.requestTime().recordSince(start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            metrics.rejectedRequest();
+            response.setHeader("Retry-After", "1");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            async.complete();
+        }
+    }
+
+    private void handle(HttpServletRequest request, HttpServletResponse response, RequestHandler handler) {
+        try {
+            handler.handle(request, response);
+        } catch (Exception e) {
+            metrics.failedRequest();
+            request.getServletContext().log("request failed", e);
+            if (!response.isCommitted()) {
+                try {
+                    response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                } catch (IOException ignored) {
+                    // the client is gone or the request was abandoned
+                }
+            }
+        }
+    }
+
+    // a new, initialized and stored game; IllegalArgumentException if this service cannot hold it
+    public Game newGame(UUID id, int size, int target) {
+        if (standardOnly && (size != Bitboard.SIZE || target != Game.WINNING_VALUE)) {
+            throw new IllegalArgumentException("only 4x4 games to " + Game.WINNING_VALUE + " are supported");
+        }
+        Game game = new Game(size, target, new SplitMixSpawner());
+        game.initialize();
+        games.put(id, game);
+        if (journal != null) journal.await(journal.logGame(id, game));
+        metrics.newGame();
+        return game;
+    }
+
+    // runs the function under the game's lock, null if the game is unknown. Moves made by the function
+    // are on disk when this returns; the fsync is awaited after the lock is released.
+    public <T> T withGame(UUID id, Function<Game, T> function) {
+        return withGame(id, function, 0);
+    }
+
+    // the same, recording the wait for the journal under the given trace id
+    public <T> T withGame(UUID id, Function<Game, T> function, long trace) {
+        T result = games.withGame(id, function);
+        if (journal != null) {
+            long[] last = unsynced.get();
+            if (last[0] != 0) {
+                long start = Tracer.now(trace);
+                long sequence = last[0];
+                last[0] = 0;
+                journal.await(sequence);
+                tracer.span(trace, Tracer.Phase.journal, start);
+            }
+        }
+        return result;
+    }
+
+    // moves a game obtained from withGame and journals the move; false if the move is not possible.
+    // The move that ends a game submits it to the leaderboard.
+    public boolean move(UUID id, Game game, Direction direction) {
+        return move(id, game, direction, 0);
+    }
+
+    // the same, recording its phases under the given trace id
+    public boolean move(UUID id, Game game, Direction direction, long trace) {
+        long start = Tracer.now(trace);
+        boolean over = game.isOver();
+        metrics.overCheck(over);
+        start = tracer.span(trace, Tracer.Phase.over, start);
+        if (over) return false;
+        long before = journal != null ? game.getBoard() : 0;
+        boolean moved = game.move(direction);
+        metrics.move(direction, moved);
+        start = tracer.span(trace, Tracer.Phase.move, start);
+        if (!moved) return false;
+        if (journal != null) {
+            unsynced.get()[0] = journal.logMove(id, direction, before, game);
+        }
+        if (game.isOver()) {
+            metrics.gameOver();
+            leaderboard.submit(id, game);
+        }
+        return true;
+    }
+
+    // the best move of a 4x4 game and its expected value, null if the game is unknown.
+    // The search runs outside the game's lock, so it never delays moves of the same game.
+    public SearchResult hint(UUID id) {
+        long start = System.nanoTime();
+        Long board = games.withGame(id, game -> {
+            if (game.getSize() != Bitboard.SIZE) throw new IllegalArgumentException("hints are only available for 4x4 games");
+            return game.getBoard();
+        });
+        if (board == null) return null;
+        SearchResult hint = hintCache.get(board);
+        if (hint != null) {
+            metrics.hintHit();
+        } else {
+            hint = hints.search(board, hintNanos);
+            hintCache.put(board, hint);
+            metrics.hintSearched(hint.getDepth());
+        }
+        metrics.hintTime().recordSince(start);
+        return hint;
+    }
+
+    public GameMetrics metrics() {
+        return metrics;
+    }
+
+    public Tracer tracer() {
+        return tracer;
+    }
+
+    public Leaderboard leaderboard() {
+        return leaderboard;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            metrics.registry().unregisterMBean();
+        } catch (JMException e) {
+            // already gone
+        }
+        if (requests != null) {
+            requests.shutdown();
+            try {
+                requests.awaitTermination(ASYNC_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            if (journal != null) journal.close();
+        } finally {
+            if (games instanceof Closeable) {
+                ((Closeable) games).close();
+            }
+        }
+    }
+}
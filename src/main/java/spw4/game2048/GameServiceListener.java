@@ -0,0 +1,51 @@
+package spw4.game2048;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebListener;
+import javax.websocket.DeploymentException;
+import javax.websocket.server.ServerContainer;
+import javax.websocket.server.ServerEndpointConfig;
+import java.io.IOException;
+
+// registers the WebSocket endpoint and closes the shared GameService when the web application stops
+@WebListener
+public class GameServiceListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        ServletContext context = event.getServletContext();
+        ServerContainer container = (ServerContainer) context.getAttribute(ServerContainer.class.getName());
+        if (container == null) {
+            context.log("no WebSocket support, " + GameSocket.PATH + " is not available");
+            return;
+        }
+        try {
+            GameSocket socket = new GameSocket(GameService.get(context));
+            container.addEndpoint(ServerEndpointConfig.Builder.create(GameSocket.class, GameSocket.PATH)
+                    .configurator(new ServerEndpointConfig.Configurator() {
+                        @Override
+                        public <T> T getEndpointInstance(Class<T> endpointClass) {
+                            return endpointClass.cast(socket);
+                        }
+                    })
+                    .build());
+        } catch (ServletException | DeploymentException e) {
+            throw new IllegalStateException("cannot register " + GameSocket.PATH, e);
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        GameService service = GameService.remove(event.getServletContext());
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                event.getServletContext().log("cannot close game service", e);
+            }
+        }
+    }
+}
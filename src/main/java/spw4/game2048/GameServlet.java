@@ -1,159 +1,178 @@
 package spw4.game2048;
 
+import spw4.game2048.ai.SearchResult;
+import spw4.game2048.metrics.Tracer;
+
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.HashMap;
 import java.util.UUID;
 
-@WebServlet("/Game")
+@WebServlet(value = "/Game", asyncSupported = true)
 public class GameServlet extends HttpServlet {
-    private HashMap<UUID, Game> games;
+    // what render did; a message is shown instead of the page
+    private enum Outcome {
+        rendered(null),
+        notModified(null),
+        unknownGame("unknown game"),
+        invalidRequest("invalid request");
+
+        final String message;
+
+        Outcome(String message) {
+            this.message = message;
+        }
+    }
+
+    private GameService service;
+    // one page buffer per request thread, reused across requests
+    private ThreadLocal<GamePage> pages;
 
     @Override
     public void init() throws ServletException {
         super.init();
-        games = new HashMap<>();
+        service = GameService.get(getServletContext());
+        pages = ThreadLocal.withInitial(() -> new GamePage(path -> StaticAssetFilter.url(getServletContext(), path)));
     }
 
     @Override
-    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-        response.setContentType("text/html");
-        PrintWriter writer = response.getWriter();
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        service.dispatch(request, response, this::handle);
+    }
 
+    private void handle(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if ("hint".equals(request.getParameter("action"))) {
+            hint(request, response);
+            return;
+        }
+        Tracer tracer = service.tracer();
+        long trace = tracer.begin();
+        long start = Tracer.now(trace);
+        GamePage page = pages.get();
+        Outcome outcome;
+        String message;
         try {
-            String action = request.getParameter("action");
-            if (action == null) action = "";
-
-            if ("new".equals(action)) {
-                UUID id = UUID.randomUUID();
-                Game newGame = new Game();
-                newGame.initialize();
-                games.put(id, newGame);
-                writer.println(game2Html(id, newGame));
-                return;
-            }
-
-            String idString = request.getParameter("id");
-            if (idString != null) {
-                UUID id = UUID.fromString(idString);
-                Game game = games.get(id);
-
-                if (!game.isOver()) {
-                    switch (action) {
-                        case "up":
-                            game.move(Direction.up);
-                            break;
-                        case "down":
-                            game.move(Direction.down);
-                            break;
-                        case "left":
-                            game.move(Direction.left);
-                            break;
-                        case "right":
-                            game.move(Direction.right);
-                            break;
-                    }
-                }
+            outcome = render(request, response, page, trace);
+            message = outcome.message;
+        }
+        catch (Throwable t) {
+            outcome = Outcome.invalidRequest;
+            message = t.toString();
+        }
 
-                writer.println(game2Html(id, games.get(id)));
-                return;
-            }
+        if (outcome == Outcome.notModified) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        if (message != null) {
+            service.metrics().invalidRequest();
+            response.setContentType("text/html");
+            response.getWriter().println(message);
+            return;
+        }
+        response.setContentType("text/html;charset=UTF-8");
+        response.setContentLength(page.length());
+        long write = Tracer.now(trace);
+        page.writeTo(response.getOutputStream());
+        tracer.span(trace, Tracer.Phase.write, write);
+        tracer.span(trace, Tracer.Phase.request, start);
+    }
 
-            writer.println("invalid request");
+    // answers the best move of the game as JSON, see GameJson.hint
+    private void hint(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String idString = request.getParameter("id");
+        SearchResult hint = null;
+        String message;
+        try {
+            if (idString != null) hint = service.hint(UUID.fromString(idString));
+            message = idString == null ? "invalid request" : hint == null ? "unknown game" : null;
         }
-        catch (Throwable t) {
-            writer.println(t.toString());
+        catch (IllegalArgumentException e) {
+            message = e.getMessage();
+        }
+
+        if (message != null) {
+            service.metrics().invalidRequest();
+            response.setContentType("text/html");
+            response.getWriter().println(message);
+            return;
+        }
+        response.setHeader("Cache-Control", "no-store");
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().print(GameJson.hint(hint));
+    }
+
+    // renders the requested game into page and sets its cache headers, unless the outcome says otherwise
+    private Outcome render(HttpServletRequest request, HttpServletResponse response, GamePage page, long trace) {
+        Tracer tracer = service.tracer();
+        String action = request.getParameter("action");
+        if (action == null) action = "";
+
+        if ("new".equals(action)) {
+            int size = requestParameter(request, "size", Bitboard.SIZE);
+            int target = requestParameter(request, "target", Game.WINNING_VALUE);
+            UUID id = UUID.randomUUID();
+            Game game = service.newGame(id, size, target);
+            long start = System.nanoTime();
+            page.render(id, game);
+            service.metrics().renderTime().recordSince(start);
+            response.setHeader("Cache-Control", "no-store");
+            return Outcome.rendered;
         }
+
+        String idString = request.getParameter("id");
+        if (idString != null) {
+            long parse = Tracer.now(trace);
+            UUID id = UUID.fromString(idString);
+            Direction direction = parseDirection(action);
+            long lookup = tracer.span(trace, Tracer.Phase.parse, parse);
+            Boolean notModified = service.withGame(id, game -> {
+                tracer.span(trace, Tracer.Phase.lookup, lookup);
+                if (direction != null) {
+                    service.move(id, game, direction, trace);
+                }
+                String etag = HttpCaching.etag(page.revision(), game);
+                response.setHeader("ETag", etag);
+                response.setHeader("Cache-Control", "no-cache");
+                // a move changes the game, so only plain views can be answered from the client's copy
+                if (direction == null && HttpCaching.matches(request.getHeader("If-None-Match"), etag)) {
+                    return true;
+                }
+                long start = System.nanoTime();
+                page.render(id, game);
+                service.metrics().renderTime().recordSince(start);
+                tracer.span(trace, Tracer.Phase.render, start);
+                return false;
+            }, trace);
+            if (notModified == null) return Outcome.unknownGame;
+            return notModified ? Outcome.notModified : Outcome.rendered;
+        }
+
+        return Outcome.invalidRequest;
+    }
+
+    private static int requestParameter(HttpServletRequest request, String name, int defaultValue) {
+        String value = request.getParameter(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
     }
 
-    private String game2Html(UUID id, Game game) {
-        StringBuffer sb = new StringBuffer();
-
-        sb.append("<!DOCTYPE html>\n");
-        sb.append("<html lang=\"en\">\n");
-        sb.append("<head>\n");
-        sb.append("    <meta charset=\"UTF-8\">\n");
-        sb.append("    <title>2048</title>\n");
-        sb.append("    <link href=\"css/bootstrap.min.css\" rel=\"stylesheet\"/>\n");
-        sb.append("    <link href=\"icons/bootstrap-icons.css\" rel=\"stylesheet\"/>\n");
-        sb.append("    <script src=\"js/bootstrap.min.js\"></script>\n");
-        sb.append("</head>\n");
-        sb.append("<body>\n");
-        sb.append("    <h1 class=\"m-5 text-center\">Play 2048:</h1>\n");
-        sb.append("\n");
-        sb.append("    <div class=\"row\">\n");
-        sb.append("        <div class=\"col-4\"></div>\n");
-        sb.append("        <div class=\"col\">\n");
-        sb.append("            <div class=\"row\">\n");
-        sb.append("                <div class=\"col text-center pb-4\"><h5>Moves: " + game.getMoves() + "</h5></div>\n");
-        sb.append("                <div class=\"col text-center pb-4\"><h5>Score: " + game.getScore() + "</h5></div>\n");
-        sb.append("            </div>\n");
-        if (game.isOver() && game.isWon()) {
-            sb.append("            <div class=\"row\">\n");
-            sb.append("                <div class=\"col text-center pb-4\"><h1><span class=\"badge badge-success w-75\">YOU WIN</span></h1></div>\n");
-            sb.append("            </div>\n");
-        } else if (game.isOver() && !game.isWon()) {
-            sb.append("            <div class=\"row\">\n");
-            sb.append("                <div class=\"col text-center pb-4\"><h1><span class=\"badge badge-danger w-75\">YOU LOSE</span></h1></div>\n");
-            sb.append("            </div>\n");
+    private static Direction parseDirection(String action) {
+        switch (action) {
+            case "up":
+                return Direction.up;
+            case "down":
+                return Direction.down;
+            case "left":
+                return Direction.left;
+            case "right":
+                return Direction.right;
+            default:
+                return null;
         }
-        sb.append("            <div class=\"row\">\n");
-        sb.append("                <div class=\"col-2\"></div>\n");
-        sb.append("                <div class=\"col text-center pb-4\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id=" + id + "&action=up\"><i class=\"bi-arrow-up\"></i></a></div>\n");
-        sb.append("                <div class=\"col-2\"></div>\n");
-        sb.append("            </div>\n");
-        sb.append("            <div class=\"row\">\n");
-        sb.append("                <div class=\"col-2 my-auto text-right\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id=" + id + "&action=left\"><i class=\"bi-arrow-left\"></i></a></div>\n");
-        sb.append("                <div class=\"col\">\n");
-        sb.append("                    <div class=\"container text-center bg-secondary\">\n");
-        sb.append("                        <div class=\"row\">\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.getValueAt(0, 0) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.getValueAt(0, 1) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.getValueAt(0, 2) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 mr-1 bg-light\">" + game.getValueAt(0, 3) + "</div>\n");
-        sb.append("                        </div>\n");
-        sb.append("                        <div class=\"row\">\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.getValueAt(1, 0) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.getValueAt(1, 1) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.getValueAt(1, 2) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 mr-1 bg-light\">" + game.getValueAt(1, 3) + "</div>\n");
-        sb.append("                        </div>\n");
-        sb.append("                        <div class=\"row\">\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.getValueAt(2, 0) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.getValueAt(2, 1) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.getValueAt(2, 2) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 mr-1 bg-light\">" + game.getValueAt(2, 3) + "</div>\n");
-        sb.append("                        </div>\n");
-        sb.append("                        <div class=\"row\">\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 mb-1 bg-light\">" + game.getValueAt(3, 0) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 mb-1 bg-light\">" + game.getValueAt(3, 1) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 mb-1 bg-light\">" + game.getValueAt(3, 2) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 mb-1 mr-1 bg-light\">" + game.getValueAt(3, 3) + "</div>\n");
-        sb.append("                        </div>\n");
-        sb.append("                    </div>\n");
-        sb.append("                </div>\n");
-        sb.append("                <div class=\"col-2 my-auto\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id=" + id + "&action=right\"><i class=\"bi-arrow-right\"></i></a></div>\n");
-        sb.append("            </div>\n");
-        sb.append("            <div class=\"row\">\n");
-        sb.append("                <div class=\"col-2\"></div>\n");
-        sb.append("                <div class=\"col text-center pt-4\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id=" + id + "&action=down\"><i class=\"bi-arrow-down\"></i></a></div>\n");
-        sb.append("                <div class=\"col-2\"></div>\n");
-        sb.append("            </div>\n");
-        sb.append("            <div class=\"row\">\n");
-        sb.append("                <div class=\"col text-center pt-4\"><a role=\"button\" class=\"btn btn-danger w-75\" href=\"Game?action=new\">New Game</a></div>\n");
-        sb.append("                <div class=\"col text-center pt-4\"><a role=\"button\" class=\"btn btn-info w-75\" href=\"Game?id=" + id + "\">Refresh</a></div>\n");
-        sb.append("            </div>\n");
-        sb.append("        </div>\n");
-        sb.append("        <div class=\"col-4\"></div>\n");
-        sb.append("    </div>\n");
-        sb.append("</body>\n");
-        sb.append("</html>\n");
-
-        return sb.toString();
     }
 }
@@ -0,0 +1,71 @@
+package spw4.game2048;
+
+import java.util.Arrays;
+
+/**
+ * Immutable copy of the position of a {@link Game}: board, score and number of moves.
+ * A 4x4 snapshot is just the packed board and two ints; other sizes keep a copy of the packed rows.
+ * The tile spawner is not part of a snapshot.
+ */
+public final class GameSnapshot {
+
+    private final long board;
+    private final int[] rows;
+    private final int score;
+    private final int moves;
+
+    public GameSnapshot(long board, int score, int moves) {
+        this.board = board;
+        this.rows = null;
+        this.score = score;
+        this.moves = moves;
+    }
+
+    GameSnapshot(int[] rows, int score, int moves) {
+        this.board = 0;
+        this.rows = rows.clone();
+        this.score = score;
+        this.moves = moves;
+    }
+
+    public int getSize() {
+        return rows == null ? Bitboard.SIZE : rows.length;
+    }
+
+    // the packed bitboard, only for 4x4 snapshots
+    public long getBoard() {
+        if (rows != null) throw new IllegalStateException("only 4x4 snapshots have a packed board");
+        return board;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getMoves() {
+        return moves;
+    }
+
+    void copyRows(int[] target) {
+        System.arraycopy(rows, 0, target, 0, rows.length);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof GameSnapshot)) return false;
+        GameSnapshot other = (GameSnapshot) o;
+        return board == other.board && Arrays.equals(rows, other.rows) && score == other.score && moves == other.moves;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * (31 * Long.hashCode(board) + Arrays.hashCode(rows)) + score) + moves;
+    }
+
+    @Override
+    public String toString() {
+        String position = rows == null ? Long.toHexString(board) : Arrays.toString(rows);
+        return "GameSnapshot[board=" + position + ", score=" + score + ", moves=" + moves + "]";
+    }
+}
@@ -0,0 +1,130 @@
+package spw4.game2048;
+
+import javax.websocket.CloseReason;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.MessageHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * WebSocket move channel at {@value #PATH}.
+ * <p>
+ * The client sends binary messages of direction ordinals, one byte per move; a burst of moves can
+ * go into one message and is applied under a single game lock. The server answers with
+ * {@link DiffEncoder} diffs, starting with the full board. The container delivers the messages of a
+ * session one at a time, so moves are applied in order. At most one diff per connection is in
+ * flight: moves arriving while the client is still receiving are merged into the next diff.
+ */
+public class GameSocket extends Endpoint {
+    public static final String PATH = "/ws/games/{id}";
+    private static final int MAX_MOVES_PER_MESSAGE = 1024;
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final String CONNECTION = Connection.class.getName();
+
+    private final GameService service;
+
+    public GameSocket(GameService service) {
+        this.service = service;
+    }
+
+    @Override
+    public void onOpen(Session session, EndpointConfig config) {
+        UUID id;
+        try {
+            id = UUID.fromString(session.getPathParameters().get("id"));
+        } catch (IllegalArgumentException e) {
+            close(session, CloseReason.CloseCodes.CANNOT_ACCEPT, "invalid game id");
+            return;
+        }
+        Integer size = service.withGame(id, Game::getSize);
+        if (size == null) {
+            close(session, CloseReason.CloseCodes.CANNOT_ACCEPT, "unknown game");
+            return;
+        }
+
+        session.setMaxBinaryMessageBufferSize(MAX_MOVES_PER_MESSAGE);
+        Connection connection = new Connection(session, id, new DiffEncoder(size));
+        session.addMessageHandler(ByteBuffer.class, connection);
+        session.getUserProperties().put(CONNECTION, connection);
+        service.metrics().socketOpened();
+        connection.flush();
+    }
+
+    @Override
+    public void onClose(Session session, CloseReason reason) {
+        // sessions refused in onOpen were never counted
+        if (session.getUserProperties().remove(CONNECTION) != null) {
+            service.metrics().socketClosed();
+        }
+    }
+
+    private static void close(Session session, CloseReason.CloseCode code, String reason) {
+        try {
+            session.close(new CloseReason(code, reason));
+        } catch (IOException e) {
+            // the connection is gone anyway
+        }
+    }
+
+    private class Connection implements MessageHandler.Whole<ByteBuffer> {
+        private final Session session;
+        private final UUID id;
+        private final DiffEncoder encoder;
+        private boolean sending;
+        private boolean dirty;
+
+        Connection(Session session, UUID id, DiffEncoder encoder) {
+            this.session = session;
+            this.id = id;
+            this.encoder = encoder;
+        }
+
+        @Override
+        public void onMessage(ByteBuffer moves) {
+            Boolean valid = service.withGame(id, game -> {
+                while (moves.hasRemaining()) {
+                    int ordinal = moves.get() & 0xFF;
+                    if (ordinal >= DIRECTIONS.length) return false;
+                    service.move(id, game, DIRECTIONS[ordinal]);
+                }
+                return true;
+            });
+            if (valid == null) {
+                close(session, CloseReason.CloseCodes.GOING_AWAY, "game expired");
+            } else if (!valid) {
+                close(session, CloseReason.CloseCodes.PROTOCOL_ERROR, "invalid direction");
+            } else {
+                flush();
+            }
+        }
+
+        // sends a diff now, or marks one as due if the previous diff is still being sent
+        synchronized void flush() {
+            if (sending) {
+                dirty = true;
+                return;
+            }
+            ByteBuffer diff = service.withGame(id, encoder::diff);
+            if (diff == null) {
+                close(session, CloseReason.CloseCodes.GOING_AWAY, "game expired");
+                return;
+            }
+            sending = true;
+            dirty = false;
+            session.getAsyncRemote().sendBinary(diff, this::sent);
+        }
+
+        private synchronized void sent(SendResult result) {
+            sending = false;
+            if (!result.isOK()) {
+                close(session, CloseReason.CloseCodes.UNEXPECTED_CONDITION, "send failed");
+            } else if (dirty) {
+                flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package spw4.game2048;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+// ETag and fingerprint helpers for conditional requests and cacheable static assets
+final class HttpCaching {
+
+    private HttpCaching() {
+    }
+
+    // strong ETag of a game page: the page revision and everything the page shows of the game, the cells,
+    // score and moves, so it survives games being rebuilt from a store or journal.
+    static String etag(int revision, Game game) {
+        StringBuilder sb = new StringBuilder(64).append('"').append(Integer.toHexString(revision));
+        int size = game.getSize();
+        if (size == Bitboard.SIZE) {
+            sb.append('-').append(Long.toHexString(game.getBoard()));
+        } else {
+            for (int row = 0; row < size; row++) {
+                long cells = 0;
+                for (int col = 0; col < size; col++) {
+                    cells |= (long) Bitboard.toExponent(game.getValueAt(row, col)) << 4 * col;
+                }
+                sb.append('-').append(Long.toHexString(cells));
+            }
+        }
+        return sb.append('-').append(Integer.toHexString(game.getScore()))
+                .append('-').append(Integer.toHexString(game.getMoves()))
+                .append('"').toString();
+    }
+
+    // true if an If-None-Match header lists the ETag or is *
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) candidate = candidate.substring(2);
+            if (candidate.equals("*") || candidate.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    // short content hash for cache-busting asset URLs
+    static String fingerprint(InputStream in) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            crc.update(buffer, 0, read);
+        }
+        return Long.toHexString(crc.getValue());
+    }
+}
@@ -0,0 +1,64 @@
+package spw4.game2048;
+
+import spw4.game2048.leaderboard.Leaderboard;
+import spw4.game2048.leaderboard.Score;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Top scores of finished games as JSON, see {@link GameJson#leaderboard(List)}.
+ * <pre>
+ * GET /api/leaderboard[?limit=10]   overall
+ * GET /api/leaderboard?day=today    per UTC day, or day=2024-05-01
+ * GET /api/leaderboard?size=4       per board size
+ * </pre>
+ * Reads never wait for submissions, so they are answered on the container thread.
+ */
+@WebServlet("/api/leaderboard")
+public class LeaderboardServlet extends HttpServlet {
+    private static final int DEFAULT_LIMIT = 10;
+
+    private GameService service;
+
+    @Override
+    public void init() throws ServletException {
+        super.init();
+        service = GameService.get(getServletContext());
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Leaderboard leaderboard = service.leaderboard();
+        String day = request.getParameter("day");
+        String size = request.getParameter("size");
+        String limitString = request.getParameter("limit");
+        List<Score> scores;
+        try {
+            int limit = limitString == null ? DEFAULT_LIMIT : Integer.parseInt(limitString);
+            if (limit < 1) throw new IllegalArgumentException();
+            if (day != null) {
+                scores = "today".equals(day) ? leaderboard.today(limit) : leaderboard.day(LocalDate.parse(day), limit);
+            } else if (size != null) {
+                scores = leaderboard.size(Integer.parseInt(size), limit);
+            } else {
+                scores = leaderboard.overall(limit);
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            service.metrics().invalidRequest();
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "invalid day, size or limit");
+            return;
+        }
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        response.getWriter().print(GameJson.leaderboard(scores));
+    }
+}
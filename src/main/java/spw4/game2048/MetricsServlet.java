@@ -0,0 +1,28 @@
+package spw4.game2048;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+// the GameMetrics in the Prometheus text format, answered on the container thread so it works when the pool is full
+@WebServlet("/metrics")
+public class MetricsServlet extends HttpServlet {
+    private GameService service;
+
+    @Override
+    public void init() throws ServletException {
+        super.init();
+        service = GameService.get(getServletContext());
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("text/plain; version=0.0.4");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-store");
+        service.metrics().registry().writeTo(response.getWriter());
+    }
+}
@@ -0,0 +1,208 @@
+package spw4.game2048;
+
+/**
+ * Board helpers for sizes other than 4x4, where a board is an {@code int[]} with one packed row per entry.
+ * <p>
+ * Cells are 4-bit exponents as in {@link Bitboard}, column 0 in the lowest nibble, so rows of up to
+ * 8 cells fit into an int. Columns are handled by gathering them into the same row format.
+ * Sizes up to {@value #MAX_TABLE_SIZE} slide and score rows through lookup tables with
+ * {@code 2^(4 * size)} entries; larger rows are computed cell by cell.
+ * Instances are immutable and shared per size, see {@link #forSize(int)}.
+ */
+public final class PackedRows {
+
+    public static final int MIN_SIZE = 3;
+    public static final int MAX_SIZE = 8;
+    public static final int MAX_TABLE_SIZE = 5;
+
+    private static final PackedRows[] INSTANCES = new PackedRows[MAX_SIZE + 1];
+
+    private final int size;
+    private final int[] left;
+    private final int[] right;
+    private final int[] score;
+
+    private PackedRows(int size) {
+        this.size = size;
+        if (size <= MAX_TABLE_SIZE) {
+            int entries = 1 << 4 * size;
+            left = new int[entries];
+            right = new int[entries];
+            score = new int[entries];
+            for (int row = 0; row < entries; row++) {
+                left[row] = computeSlideLeft(row);
+                right[row] = computeSlideRight(row);
+                score[row] = computeScore(row);
+            }
+        } else {
+            left = right = score = null;
+        }
+    }
+
+    // tables are built on first use of a size
+    public static synchronized PackedRows forSize(int size) {
+        if (size < MIN_SIZE || size > MAX_SIZE) throw new IllegalArgumentException("unsupported board size " + size);
+        if (INSTANCES[size] == null) {
+            INSTANCES[size] = new PackedRows(size);
+        }
+        return INSTANCES[size];
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getExponent(int[] rows, int row, int col) {
+        return rows[row] >>> 4 * col & 0xF;
+    }
+
+    public void setExponent(int[] rows, int row, int col, int exponent) {
+        rows[row] = rows[row] & ~(0xF << 4 * col) | exponent << 4 * col;
+    }
+
+    public int slideLeft(int row) {
+        return left != null ? left[row] : computeSlideLeft(row);
+    }
+
+    public int slideRight(int row) {
+        return right != null ? right[row] : computeSlideRight(row);
+    }
+
+    // merge score of a row, the same whichever way it slides
+    public int score(int row) {
+        return score != null ? score[row] : computeScore(row);
+    }
+
+    // one bit per empty cell, bit row * size + col
+    public long emptyCells(int[] rows) {
+        long empty = 0;
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                if (getExponent(rows, row, col) == 0) {
+                    empty |= 1L << row * size + col;
+                }
+            }
+        }
+        return empty;
+    }
+
+    public int maxExponent(int[] rows) {
+        int max = 0;
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                max = Math.max(max, getExponent(rows, row, col));
+            }
+        }
+        return max;
+    }
+
+    // bit i is set if Direction.values()[i] changes the board
+    public int legalMoves(int[] rows) {
+        int legal = 0;
+        for (int i = 0; i < size; i++) {
+            int row = rows[i];
+            if (slideLeft(row) != row) legal |= 1 << Direction.left.ordinal();
+            if (slideRight(row) != row) legal |= 1 << Direction.right.ordinal();
+            int column = getColumn(rows, i);
+            if (slideLeft(column) != column) legal |= 1 << Direction.up.ordinal();
+            if (slideRight(column) != column) legal |= 1 << Direction.down.ordinal();
+        }
+        return legal;
+    }
+
+    // moves in place and returns the merge score
+    public int move(int[] rows, Direction direction) {
+        int points = 0;
+        for (int i = 0; i < size; i++) {
+            switch (direction) {
+                case left:
+                    points += score(rows[i]);
+                    rows[i] = slideLeft(rows[i]);
+                    break;
+                case right:
+                    points += score(rows[i]);
+                    rows[i] = slideRight(rows[i]);
+                    break;
+                case up: {
+                    int column = getColumn(rows, i);
+                    points += score(column);
+                    setColumn(rows, i, slideLeft(column));
+                    break;
+                }
+                case down: {
+                    int column = getColumn(rows, i);
+                    points += score(column);
+                    setColumn(rows, i, slideRight(column));
+                    break;
+                }
+            }
+        }
+        return points;
+    }
+
+    // the column as a packed row, row 0 in the lowest nibble
+    int getColumn(int[] rows, int col) {
+        int column = 0;
+        for (int row = 0; row < size; row++) {
+            column |= getExponent(rows, row, col) << 4 * row;
+        }
+        return column;
+    }
+
+    void setColumn(int[] rows, int col, int column) {
+        for (int row = 0; row < size; row++) {
+            setExponent(rows, row, col, column >>> 4 * row & 0xF);
+        }
+    }
+
+    int computeSlideLeft(int row) {
+        int result = 0;
+        int target = 0;
+        int pending = 0;
+        for (int col = 0; col < size; col++) {
+            int exponent = row >>> 4 * col & 0xF;
+            if (exponent == 0) continue;
+            if (exponent == pending && exponent < Bitboard.MAX_EXPONENT) {
+                result |= exponent + 1 << 4 * target++;
+                pending = 0;
+            } else {
+                if (pending != 0) {
+                    result |= pending << 4 * target++;
+                }
+                pending = exponent;
+            }
+        }
+        if (pending != 0) {
+            result |= pending << 4 * target;
+        }
+        return result;
+    }
+
+    int computeSlideRight(int row) {
+        return reverse(computeSlideLeft(reverse(row)));
+    }
+
+    int computeScore(int row) {
+        int points = 0;
+        int previous = 0;
+        for (int col = 0; col < size; col++) {
+            int exponent = row >>> 4 * col & 0xF;
+            if (exponent == 0) continue;
+            if (exponent == previous && exponent < Bitboard.MAX_EXPONENT) {
+                points += 1 << exponent + 1;
+                previous = 0;
+            } else {
+                previous = exponent;
+            }
+        }
+        return points;
+    }
+
+    int reverse(int row) {
+        int result = 0;
+        for (int col = 0; col < size; col++) {
+            result |= (row >>> 4 * col & 0xF) << 4 * (size - 1 - col);
+        }
+        return result;
+    }
+}
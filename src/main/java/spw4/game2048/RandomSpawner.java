@@ -0,0 +1,52 @@
+package spw4.game2048;
+
+import java.util.Random;
+
+/**
+ * Spawner backed by {@link java.util.Random}, placing tiles the way the game always has:
+ * a random start cell, then probing down the column and on to the next column until a cell is empty.
+ * Kept so games seeded or mocked through a Random behave as before; the probing favours cells
+ * after occupied runs, so new code should prefer {@link SplitMixSpawner}.
+ */
+public class RandomSpawner implements TileSpawner {
+
+    private final Random random;
+
+    public RandomSpawner(Random random) {
+        this.random = random;
+    }
+
+    @Override
+    public int spawn(long emptyCells, int size) {
+        int exponent = random.nextDouble() <= Game.PROBABILITY_OF_TWO ? 1 : 2;
+        // the same cells as the original Math.abs(nextInt()) % size, but safe for Integer.MIN_VALUE
+        int row = Math.abs(random.nextInt() % size);
+        int col = Math.abs(random.nextInt() % size);
+
+        while ((emptyCells >>> (row * size + col) & 1) == 0) {
+            row++;
+            row %= size;
+            if (row == 0) {
+                col++;
+                col %= size;
+            }
+        }
+        return (row * size + col) << 4 | exponent;
+    }
+
+    @Override
+    public RandomSpawner split() {
+        return new RandomSpawner(new Random(random.nextLong()));
+    }
+
+    // the state of a java.util.Random cannot be read
+    @Override
+    public boolean hasState() {
+        return false;
+    }
+
+    @Override
+    public long getState() {
+        throw new UnsupportedOperationException("java.util.Random state is not accessible");
+    }
+}
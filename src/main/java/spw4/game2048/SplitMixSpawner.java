@@ -0,0 +1,84 @@
+package spw4.game2048;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SplitMix64 generator picking uniformly among the empty cells.
+ * Its whole state is one long, so games can be stored, replayed and forked exactly.
+ * Not thread-safe; use {@link #split()} to hand a generator to another thread.
+ */
+public class SplitMixSpawner implements TileSpawner {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final AtomicLong SEEDER = new AtomicLong(mix(System.currentTimeMillis()) ^ mix(System.nanoTime()));
+
+    private long state;
+
+    public SplitMixSpawner() {
+        this(mix(SEEDER.getAndAdd(2 * GOLDEN_GAMMA)));
+    }
+
+    public SplitMixSpawner(long state) {
+        this.state = state;
+    }
+
+    @Override
+    public int spawn(long emptyCells, int size) {
+        int exponent = nextDouble() <= Game.PROBABILITY_OF_TWO ? 1 : 2;
+        int cell = selectBit(emptyCells, nextInt(Long.bitCount(emptyCells)));
+        return cell << 4 | exponent;
+    }
+
+    @Override
+    public SplitMixSpawner split() {
+        return new SplitMixSpawner(nextLong());
+    }
+
+    @Override
+    public long getState() {
+        return state;
+    }
+
+    public long nextLong() {
+        return mix(state += GOLDEN_GAMMA);
+    }
+
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    // uniform in [0, bound), multiply-shift with rejection of the biased low range
+    public int nextInt(int bound) {
+        long product = (nextLong() >>> 32) * bound;
+        if ((product & 0xFFFFFFFFL) < bound) {
+            long threshold = (1L << 32) % bound;
+            while ((product & 0xFFFFFFFFL) < threshold) {
+                product = (nextLong() >>> 32) * bound;
+            }
+        }
+        return (int) (product >>> 32);
+    }
+
+    // index of the k-th (from 0) set bit, by halving the search window
+    static int selectBit(long bits, int k) {
+        int index = 0;
+        for (int width = 32; width > 0; width >>>= 1) {
+            long low = bits & ((1L << width) - 1);
+            int count = Long.bitCount(low);
+            if (k >= count) {
+                k -= count;
+                index += width;
+                bits >>>= width;
+            } else {
+                bits = low;
+            }
+        }
+        return index;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
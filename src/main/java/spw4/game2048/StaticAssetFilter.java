@@ -0,0 +1,73 @@
+package spw4.game2048;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache headers for the static assets.
+ * <p>
+ * Pages link assets as {@code path?v=fingerprint}, see {@link #url(ServletContext, String)}. A request
+ * with the current fingerprint may be cached for a year, since any change to the file changes its URL;
+ * everything else has to be revalidated.
+ */
+@WebFilter({"/css/*", "/js/*", "/icons/*"})
+public class StaticAssetFilter implements Filter {
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String REVALIDATE = "no-cache";
+    // content fingerprints by asset path, computed on first use
+    private static final Map<String, String> FINGERPRINTS = new ConcurrentHashMap<>();
+
+    private ServletContext context;
+
+    @Override
+    public void init(FilterConfig config) {
+        context = config.getServletContext();
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        String path = httpRequest.getRequestURI().substring(httpRequest.getContextPath().length() + 1);
+        String version = request.getParameter("v");
+        boolean current = version != null && version.equals(fingerprint(context, path));
+        ((HttpServletResponse) response).setHeader("Cache-Control", current ? IMMUTABLE : REVALIDATE);
+        chain.doFilter(request, response);
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    // the URL to link an asset under, relative to the context root
+    public static String url(ServletContext context, String path) {
+        String fingerprint = fingerprint(context, path);
+        return fingerprint == null ? path : path + "?v=" + fingerprint;
+    }
+
+    // null if there is no such asset
+    private static String fingerprint(ServletContext context, String path) {
+        String fingerprint = FINGERPRINTS.get(path);
+        if (fingerprint != null) return fingerprint;
+        try (InputStream in = context.getResourceAsStream("/" + path)) {
+            if (in == null) return null;
+            fingerprint = HttpCaching.fingerprint(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        FINGERPRINTS.put(path, fingerprint);
+        return fingerprint;
+    }
+}
@@ -0,0 +1,25 @@
+package spw4.game2048;
+
+/**
+ * Source of randomness for new tiles.
+ * <p>
+ * Cells are numbered row by row, {@code row * size + col}; bit {@code i} of {@code emptyCells} is set
+ * if cell {@code i} is empty. At least one bit is always set.
+ */
+public interface TileSpawner {
+
+    // returns cell << 4 | exponent of the new tile
+    int spawn(long emptyCells, int size);
+
+    // an independent spawner for a forked game or another thread
+    TileSpawner split();
+
+    // whether getState is supported, false for spawners whose state cannot be read
+    default boolean hasState() {
+        return true;
+    }
+
+    // a value from which new SplitMixSpawner(state) continues exactly where this spawner is;
+    // UnsupportedOperationException unless hasState
+    long getState();
+}
@@ -0,0 +1,75 @@
+package spw4.game2048;
+
+import spw4.game2048.metrics.Tracer;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Admin endpoint of the request {@link Tracer}. It is off unless the context parameter {@code adminToken}
+ * is set, and then only answers clients on the loopback interface that send
+ * {@code Authorization: Bearer <adminToken>}. The loopback check alone is not enough: behind a local
+ * reverse proxy every client is on the loopback interface.
+ * <pre>
+ * GET  /admin/trace             buffered spans, oldest first
+ * POST /admin/trace?sample=100  trace one in 100 requests, 0 switches tracing off
+ * </pre>
+ */
+@WebServlet("/admin/trace")
+public class TraceServlet extends HttpServlet {
+    private static final String BEARER = "Bearer ";
+
+    private GameService service;
+    // null if the endpoint is off
+    private byte[] adminToken;
+
+    @Override
+    public void init() throws ServletException {
+        super.init();
+        service = GameService.get(getServletContext());
+        String token = getServletContext().getInitParameter("adminToken");
+        if (token != null && !token.isEmpty()) adminToken = token.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!authorized(request, response)) return;
+        response.setContentType("text/plain");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-store");
+        response.getWriter().append("# sample ").append(Integer.toString(service.tracer().getSampleEvery())).append('\n');
+        service.tracer().writeTo(response.getWriter());
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!authorized(request, response)) return;
+        try {
+            service.tracer().setSampleEvery(Integer.parseInt(request.getParameter("sample")));
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "sample must be a number >= 0");
+            return;
+        }
+        response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+    }
+
+    private boolean authorized(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (adminToken == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return false;
+        }
+        String authorization = request.getHeader("Authorization");
+        boolean token = authorization != null && authorization.startsWith(BEARER) && MessageDigest.isEqual(adminToken,
+                authorization.substring(BEARER.length()).getBytes(StandardCharsets.UTF_8));
+        if (token && InetAddress.getByName(request.getRemoteAddr()).isLoopbackAddress()) return true;
+        response.sendError(HttpServletResponse.SC_FORBIDDEN);
+        return false;
+    }
+}
@@ -0,0 +1,11 @@
+package spw4.game2048.ai;
+
+import spw4.game2048.Bitboard;
+
+public class EmptyCellsHeuristic implements Heuristic {
+
+    @Override
+    public double evaluate(long board) {
+        return Bitboard.countEmpty(board);
+    }
+}
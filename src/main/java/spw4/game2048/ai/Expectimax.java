@@ -0,0 +1,110 @@
+package spw4.game2048.ai;
+
+import spw4.game2048.Bitboard;
+import spw4.game2048.Direction;
+import spw4.game2048.Game;
+
+/**
+ * Depth-limited expectimax search over packed boards.
+ * <p>
+ * Max nodes try all four directions, chance nodes spawn a 2 or a 4 on every empty cell
+ * weighted by {@link Game#PROBABILITY_OF_TWO}. The depth counts the moves looked ahead.
+ * Lost positions are worth {@link #LOST}, leaves are scored by the heuristic.
+ */
+public class Expectimax {
+
+    public static final int DEFAULT_TABLE_SIZE = 1 << 20;
+    public static final double LOST = -1e9;
+    protected static final Direction[] DIRECTIONS = Direction.values();
+
+    private final Heuristic heuristic;
+    private final int depth;
+    private final TranspositionTable table;
+
+    public Expectimax(Heuristic heuristic, int depth) {
+        this(heuristic, depth, new TranspositionTable(DEFAULT_TABLE_SIZE));
+    }
+
+    public Expectimax(Heuristic heuristic, int depth, TranspositionTable table) {
+        if (depth < 1) throw new IllegalArgumentException();
+        this.heuristic = heuristic;
+        this.depth = depth;
+        this.table = table;
+    }
+
+    public Direction bestMove(Game game) {
+        return search(game.getBoard()).getDirection();
+    }
+
+    public SearchResult search(long board) {
+        double[] values = evaluateMoves(board);
+        Direction best = null;
+        double bestValue = LOST;
+        for (Direction direction : DIRECTIONS) {
+            double value = values[direction.ordinal()];
+            if (Double.isNaN(value)) continue;
+            if (best == null || value > bestValue) {
+                best = direction;
+                bestValue = value;
+            }
+        }
+        return new SearchResult(best, bestValue, depth);
+    }
+
+    // expected value of every direction indexed by ordinal, NaN for illegal moves
+    protected double[] evaluateMoves(long board) {
+        double[] values = new double[DIRECTIONS.length];
+        for (Direction direction : DIRECTIONS) {
+            long moved = Bitboard.move(board, direction);
+            values[direction.ordinal()] = moved == board ? Double.NaN : chance(moved, depth);
+        }
+        return values;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    protected double max(long board, int depth) {
+        if (depth == 0) {
+            return heuristic.evaluate(board);
+        }
+        double cached = table.get(board, depth);
+        if (!Double.isNaN(cached)) {
+            return cached;
+        }
+        visited();
+
+        double best = LOST;
+        for (Direction direction : DIRECTIONS) {
+            long moved = Bitboard.move(board, direction);
+            if (moved != board) {
+                best = Math.max(best, chance(moved, depth));
+            }
+        }
+        table.put(board, depth, best);
+        return best;
+    }
+
+    // called for every max node that is searched rather than found in the table; does nothing here,
+    // so the sequential search does not pay for counting
+    protected void visited() {
+    }
+
+    protected double chance(long board, int depth) {
+        long empty = Bitboard.emptyMask(board);
+        int count = Long.bitCount(empty);
+        if (count == 0) {
+            return max(board, depth - 1);
+        }
+
+        double sum = 0;
+        while (empty != 0) {
+            int shift = Long.numberOfTrailingZeros(empty);
+            empty &= empty - 1;
+            sum += Game.PROBABILITY_OF_TWO * max(board | 1L << shift, depth - 1);
+            sum += (1 - Game.PROBABILITY_OF_TWO) * max(board | 2L << shift, depth - 1);
+        }
+        return sum / count;
+    }
+}
@@ -0,0 +1,11 @@
+package spw4.game2048.ai;
+
+/**
+ * Static evaluation of a packed {@link spw4.game2048.Bitboard} position, higher is better.
+ * Values should stay well above {@link Expectimax#LOST}.
+ */
+@FunctionalInterface
+public interface Heuristic {
+
+    double evaluate(long board);
+}
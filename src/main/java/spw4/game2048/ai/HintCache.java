@@ -0,0 +1,76 @@
+package spw4.game2048.ai;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of search results keyed by packed board, evicting the least recently used entry.
+ * <p>
+ * Boards are spread over independently locked shards, each an access-ordered {@link LinkedHashMap},
+ * so requests for different positions rarely contend. Eviction is per shard, which only approximates
+ * a global LRU order.
+ */
+public class HintCache {
+
+    public static final int DEFAULT_SHARDS = 64;
+
+    private final Shard[] shards;
+    private final int mask;
+
+    public HintCache(int capacity) {
+        this(capacity, DEFAULT_SHARDS);
+    }
+
+    public HintCache(int capacity, int shards) {
+        if (capacity <= 0 || shards <= 0) throw new IllegalArgumentException();
+        int count = Math.min(Integer.highestOneBit(shards), Integer.highestOneBit(capacity));
+        this.shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            this.shards[i] = new Shard(capacity / count + (i < capacity % count ? 1 : 0));
+        }
+        mask = count - 1;
+    }
+
+    // null if the board is not cached
+    public SearchResult get(long board) {
+        Shard shard = shard(board);
+        synchronized (shard) {
+            return shard.get(board);
+        }
+    }
+
+    public void put(long board, SearchResult result) {
+        Shard shard = shard(board);
+        synchronized (shard) {
+            shard.put(board, result);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                size += shard.size();
+            }
+        }
+        return size;
+    }
+
+    private Shard shard(long board) {
+        return shards[(int) TranspositionTable.mix(board) & mask];
+    }
+
+    private static final class Shard extends LinkedHashMap<Long, SearchResult> {
+        private final int capacity;
+
+        Shard(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, SearchResult> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package spw4.game2048.ai;
+
+/**
+ * Expectimax that searches one move deeper at a time until the time budget is used up.
+ * <p>
+ * The next depth is only started if the growth from the previous depth to the last one says it will
+ * finish in time, and a depth that overruns the budget anyway is abandoned for the result of the one
+ * before. All depths share one {@link TranspositionTable}; values are stored by remaining depth and only
+ * once complete, so each iteration reuses the subtrees of the one before, even of an abandoned one.
+ */
+public class IterativeDeepening {
+
+    public static final int DEFAULT_MAX_DEPTH = 8;
+    // assumed growth from depth 1 to 2, before there are two timings to compare
+    private static final long INITIAL_GROWTH = 8;
+    // max nodes between two looks at the clock
+    private static final int CHECK_INTERVAL = 1 << 10;
+
+    private final Heuristic heuristic;
+    private final int maxDepth;
+    private final TranspositionTable table;
+
+    public IterativeDeepening(Heuristic heuristic) {
+        this(heuristic, DEFAULT_MAX_DEPTH, new TranspositionTable(Expectimax.DEFAULT_TABLE_SIZE));
+    }
+
+    public IterativeDeepening(Heuristic heuristic, int maxDepth, TranspositionTable table) {
+        if (maxDepth < 1) throw new IllegalArgumentException();
+        this.heuristic = heuristic;
+        this.maxDepth = maxDepth;
+        this.table = table;
+    }
+
+    // the result of the deepest search that fit into the budget; depth 1 is always completed
+    public SearchResult search(long board, long budgetNanos) {
+        long start = System.nanoTime();
+        SearchResult result = new Expectimax(heuristic, 1, table).search(board);
+        long previous = 0;
+        long elapsed = Math.max(1, System.nanoTime() - start);
+        for (int depth = 2; depth <= maxDepth && result.getDirection() != null; depth++) {
+            long growth = previous == 0 ? INITIAL_GROWTH : Math.max(2, elapsed / previous);
+            long begin = System.nanoTime();
+            if (begin - start + elapsed * growth > budgetNanos) break;
+            try {
+                result = new Bounded(heuristic, depth, table, start + budgetNanos).search(board);
+            } catch (TimeUp e) {
+                break;
+            }
+            previous = elapsed;
+            elapsed = Math.max(1, System.nanoTime() - begin);
+        }
+        return result;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    // gives up once the deadline has passed; one instance per search and thread
+    private static final class Bounded extends Expectimax {
+        private final long deadline;
+        private int visits;
+
+        Bounded(Heuristic heuristic, int depth, TranspositionTable table, long deadline) {
+            super(heuristic, depth, table);
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected double max(long board, int depth) {
+            if ((++visits & CHECK_INTERVAL - 1) == 0 && System.nanoTime() - deadline > 0) throw TimeUp.INSTANCE;
+            return super.max(board, depth);
+        }
+    }
+
+    private static final class TimeUp extends RuntimeException {
+        static final TimeUp INSTANCE = new TimeUp();
+
+        private TimeUp() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package spw4.game2048.ai;
+
+// number of neighbouring tiles that could merge, ignoring empty cells in between
+public class MergesHeuristic extends RowHeuristic {
+
+    @Override
+    protected double scoreRow(int[] exponents) {
+        int merges = 0;
+        int previous = 0;
+        for (int exponent : exponents) {
+            if (exponent == 0) continue;
+            if (exponent == previous) {
+                merges++;
+                previous = 0;
+            } else {
+                previous = exponent;
+            }
+        }
+        return merges;
+    }
+}
@@ -0,0 +1,21 @@
+package spw4.game2048.ai;
+
+// penalty for rows and columns whose tiles are not sorted in either direction
+public class MonotonicityHeuristic extends RowHeuristic {
+
+    @Override
+    protected double scoreRow(int[] exponents) {
+        double increasing = 0;
+        double decreasing = 0;
+        for (int i = 0; i < exponents.length - 1; i++) {
+            double current = Math.pow(exponents[i], 4);
+            double next = Math.pow(exponents[i + 1], 4);
+            if (exponents[i] > exponents[i + 1]) {
+                increasing += current - next;
+            } else {
+                decreasing += next - current;
+            }
+        }
+        return -Math.min(increasing, decreasing);
+    }
+}
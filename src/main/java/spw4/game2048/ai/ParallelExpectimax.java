@@ -0,0 +1,123 @@
+package spw4.game2048.ai;
+
+import spw4.game2048.Bitboard;
+import spw4.game2048.Direction;
+import spw4.game2048.Game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Expectimax that splits the root directions and the upper chance nodes into fork/join subtasks.
+ * <p>
+ * All workers share one {@link TranspositionTable}. Child values are always combined in the same
+ * order as in the sequential search, so the result does not depend on the number of threads.
+ */
+public class ParallelExpectimax extends Expectimax {
+
+    // chance nodes with less remaining depth are searched sequentially
+    public static final int DEFAULT_SPLIT_DEPTH = 2;
+
+    private final ForkJoinPool pool;
+    private final int splitDepth;
+    private final LongAdder nodes = new LongAdder();
+
+    public ParallelExpectimax(Heuristic heuristic, int depth, ForkJoinPool pool) {
+        this(heuristic, depth, new TranspositionTable(DEFAULT_TABLE_SIZE), pool, DEFAULT_SPLIT_DEPTH);
+    }
+
+    public ParallelExpectimax(Heuristic heuristic, int depth, TranspositionTable table, ForkJoinPool pool, int splitDepth) {
+        super(heuristic, depth, table);
+        if (splitDepth < 1) throw new IllegalArgumentException();
+        this.pool = pool;
+        this.splitDepth = splitDepth;
+    }
+
+    @Override
+    protected double[] evaluateMoves(long board) {
+        return pool.invoke(new RecursiveTask<double[]>() {
+            @Override
+            protected double[] compute() {
+                List<Subtask> tasks = new ArrayList<>();
+                for (Direction direction : DIRECTIONS) {
+                    long moved = Bitboard.move(board, direction);
+                    tasks.add(moved == board ? null : new Subtask(moved, getDepth(), false));
+                }
+                forkAll(tasks);
+
+                double[] values = new double[DIRECTIONS.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = tasks.get(i) == null ? Double.NaN : tasks.get(i).join();
+                }
+                return values;
+            }
+        });
+    }
+
+    // number of max nodes searched so far, for benchmarking
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    @Override
+    protected void visited() {
+        nodes.increment();
+    }
+
+    @Override
+    protected double chance(long board, int depth) {
+        if (depth < splitDepth) {
+            return super.chance(board, depth);
+        }
+        long empty = Bitboard.emptyMask(board);
+        int count = Long.bitCount(empty);
+        if (count == 0) {
+            return max(board, depth - 1);
+        }
+
+        List<Subtask> tasks = new ArrayList<>(2 * count);
+        while (empty != 0) {
+            int shift = Long.numberOfTrailingZeros(empty);
+            empty &= empty - 1;
+            tasks.add(new Subtask(board | 1L << shift, depth - 1, true));
+            tasks.add(new Subtask(board | 2L << shift, depth - 1, true));
+        }
+        forkAll(tasks);
+
+        double sum = 0;
+        for (int i = 0; i < tasks.size(); i += 2) {
+            sum += Game.PROBABILITY_OF_TWO * tasks.get(i).join();
+            sum += (1 - Game.PROBABILITY_OF_TWO) * tasks.get(i + 1).join();
+        }
+        return sum / count;
+    }
+
+    private static void forkAll(List<Subtask> tasks) {
+        for (int i = tasks.size() - 1; i >= 0; i--) {
+            if (tasks.get(i) != null) {
+                tasks.get(i).fork();
+            }
+        }
+    }
+
+    // a max node after a spawn, or a chance node after a root move
+    private class Subtask extends RecursiveTask<Double> {
+        private final long board;
+        private final int depth;
+        private final boolean maxNode;
+
+        Subtask(long board, int depth, boolean maxNode) {
+            this.board = board;
+            this.depth = depth;
+            this.maxNode = maxNode;
+        }
+
+        @Override
+        protected Double compute() {
+            return maxNode ? max(board, depth) : chance(board, depth);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package spw4.game2048.ai;
+
+import spw4.game2048.Bitboard;
+
+/**
+ * A heuristic that is the sum of a per-row score over all rows and columns.
+ * The row score is precomputed for every possible 16-bit row.
+ */
+public abstract class RowHeuristic implements Heuristic {
+
+    private final double[] table = new double[1 << 16];
+
+    protected RowHeuristic() {
+        int[] exponents = new int[Bitboard.SIZE];
+        for (int row = 0; row < table.length; row++) {
+            for (int col = 0; col < Bitboard.SIZE; col++) {
+                exponents[col] = (row >>> (4 * col)) & 0xF;
+            }
+            table[row] = scoreRow(exponents);
+        }
+    }
+
+    protected abstract double scoreRow(int[] exponents);
+
+    @Override
+    public double evaluate(long board) {
+        long transposed = Bitboard.transpose(board);
+        return table[(int) (board & 0xFFFF)] + table[(int) ((board >>> 16) & 0xFFFF)]
+                + table[(int) ((board >>> 32) & 0xFFFF)] + table[(int) (board >>> 48)]
+                + table[(int) (transposed & 0xFFFF)] + table[(int) ((transposed >>> 16) & 0xFFFF)]
+                + table[(int) ((transposed >>> 32) & 0xFFFF)] + table[(int) (transposed >>> 48)];
+    }
+}
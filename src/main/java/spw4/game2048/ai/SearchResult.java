@@ -0,0 +1,34 @@
+package spw4.game2048.ai;
+
+import spw4.game2048.Direction;
+
+public class SearchResult {
+
+    private final Direction direction;
+    private final double value;
+    private final int depth;
+
+    public SearchResult(Direction direction, double value, int depth) {
+        this.direction = direction;
+        this.value = value;
+        this.depth = depth;
+    }
+
+    // null if there is no legal move
+    public Direction getDirection() {
+        return direction;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public String toString() {
+        return direction + " (" + value + " at depth " + depth + ")";
+    }
+}
@@ -0,0 +1,69 @@
+package spw4.game2048.ai;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size, always-replace cache of search values keyed by packed board and remaining depth.
+ * A value is only reused for exactly the same depth, so hits never change the result of a search.
+ * <p>
+ * The table is safe to share between threads without locking: each slot stores the value and
+ * the key xor-ed with the value, so a slot torn by concurrent writers simply reads as a miss.
+ */
+public class TranspositionTable {
+
+    private final AtomicLongArray keys;
+    private final AtomicLongArray values;
+    private final int mask;
+
+    public TranspositionTable(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException();
+        int size = Integer.highestOneBit(capacity);
+        keys = new AtomicLongArray(size);
+        values = new AtomicLongArray(size);
+        mask = size - 1;
+    }
+
+    // returns NaN if the position has not been stored for this depth
+    public double get(long board, int depth) {
+        long key = key(board, depth);
+        int index = index(key);
+        long value = values.get(index);
+        if ((keys.get(index) ^ value) == key) {
+            return Double.longBitsToDouble(value);
+        }
+        return Double.NaN;
+    }
+
+    public void put(long board, int depth, double value) {
+        long key = key(board, depth);
+        int index = index(key);
+        long bits = Double.doubleToRawLongBits(value);
+        keys.lazySet(index, key ^ bits);
+        values.lazySet(index, bits);
+    }
+
+    public void clear() {
+        for (int i = 0; i <= mask; i++) {
+            keys.lazySet(i, 0);
+            values.lazySet(i, 0);
+        }
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    private int index(long key) {
+        return (int) mix(key) & mask;
+    }
+
+    private static long key(long board, int depth) {
+        return board ^ mix(depth + 1);
+    }
+
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
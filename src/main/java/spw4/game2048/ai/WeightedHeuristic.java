@@ -0,0 +1,34 @@
+package spw4.game2048.ai;
+
+import java.util.Arrays;
+
+// weighted sum of other heuristics
+public class WeightedHeuristic implements Heuristic {
+
+    private Heuristic[] heuristics = new Heuristic[0];
+    private double[] weights = new double[0];
+
+    public static WeightedHeuristic standard() {
+        return new WeightedHeuristic()
+                .add(new EmptyCellsHeuristic(), 270)
+                .add(new MergesHeuristic(), 700)
+                .add(new MonotonicityHeuristic(), 47);
+    }
+
+    public WeightedHeuristic add(Heuristic heuristic, double weight) {
+        heuristics = Arrays.copyOf(heuristics, heuristics.length + 1);
+        weights = Arrays.copyOf(weights, weights.length + 1);
+        heuristics[heuristics.length - 1] = heuristic;
+        weights[weights.length - 1] = weight;
+        return this;
+    }
+
+    @Override
+    public double evaluate(long board) {
+        double value = 0;
+        for (int i = 0; i < heuristics.length; i++) {
+            value += weights[i] * heuristics[i].evaluate(board);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,82 @@
+package spw4.game2048.leaderboard;
+
+import spw4.game2048.Game;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Top scores of finished games overall, per UTC day and per board size, each a {@link TopK}.
+ * <p>
+ * Submitting costs one skip-list lookup per board for the usual score that does not place, and
+ * reads never block submissions. Days older than {@value #DAYS_KEPT} days are dropped when a new
+ * day starts.
+ */
+public class Leaderboard {
+    public static final int DEFAULT_CAPACITY = 100;
+    static final int DAYS_KEPT = 31;
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private final int capacity;
+    private final LongSupplier clock;
+    private final TopK overall;
+    private final ConcurrentHashMap<Long, TopK> days = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, TopK> sizes = new ConcurrentHashMap<>();
+
+    public Leaderboard() {
+        this(DEFAULT_CAPACITY, System::currentTimeMillis);
+    }
+
+    public Leaderboard(int capacity, LongSupplier clock) {
+        this.capacity = capacity;
+        this.clock = clock;
+        this.overall = new TopK(capacity);
+    }
+
+    // submits a game that has just become over
+    public void submit(UUID id, Game game) {
+        submit(new Score(id, game.getScore(), game.getMoves(), game.getSize(), game.getMaxValue(), game.isWon(),
+                clock.getAsLong()));
+    }
+
+    public void submit(Score score) {
+        overall.offer(score);
+        day(Math.floorDiv(score.getFinishedAt(), MILLIS_PER_DAY)).offer(score);
+        board(score.getSize()).offer(score);
+    }
+
+    public List<Score> overall(int limit) {
+        return overall.top(limit);
+    }
+
+    // an empty list for days without finished games or older than DAYS_KEPT
+    public List<Score> day(LocalDate date, int limit) {
+        TopK top = days.get(date.toEpochDay());
+        return top == null ? List.of() : top.top(limit);
+    }
+
+    public List<Score> today(int limit) {
+        return day(LocalDate.ofEpochDay(Math.floorDiv(clock.getAsLong(), MILLIS_PER_DAY)), limit);
+    }
+
+    public List<Score> size(int size, int limit) {
+        TopK top = sizes.get(size);
+        return top == null ? List.of() : top.top(limit);
+    }
+
+    private TopK day(long epochDay) {
+        TopK top = days.get(epochDay);
+        if (top != null) return top;
+        top = days.computeIfAbsent(epochDay, day -> new TopK(capacity));
+        days.keySet().removeIf(day -> day <= epochDay - DAYS_KEPT);
+        return top;
+    }
+
+    private TopK board(int size) {
+        TopK top = sizes.get(size);
+        return top != null ? top : sizes.computeIfAbsent(size, s -> new TopK(capacity));
+    }
+}
@@ -0,0 +1,68 @@
+package spw4.game2048.leaderboard;
+
+import java.util.Comparator;
+import java.util.UUID;
+
+/**
+ * A finished game on the leaderboard. Scores rank by points, then by fewer moves, then by who
+ * finished first; the game id breaks the remaining ties so that distinct games never compare equal.
+ */
+public final class Score {
+
+    public static final Comparator<Score> RANKING = ((Comparator<Score>) (a, b) -> Integer.compare(b.score, a.score))
+            .thenComparingInt(s -> s.moves)
+            .thenComparingLong(s -> s.finishedAt)
+            .thenComparing(s -> s.id);
+
+    private final UUID id;
+    private final int score;
+    private final int moves;
+    private final int size;
+    private final int maxValue;
+    private final boolean won;
+    private final long finishedAt;
+
+    public Score(UUID id, int score, int moves, int size, int maxValue, boolean won, long finishedAt) {
+        this.id = id;
+        this.score = score;
+        this.moves = moves;
+        this.size = size;
+        this.maxValue = maxValue;
+        this.won = won;
+        this.finishedAt = finishedAt;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getMoves() {
+        return moves;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getMaxValue() {
+        return maxValue;
+    }
+
+    public boolean isWon() {
+        return won;
+    }
+
+    // epoch milliseconds
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    @Override
+    public String toString() {
+        return id + " " + score + " in " + moves + " moves on " + size + "x" + size;
+    }
+}
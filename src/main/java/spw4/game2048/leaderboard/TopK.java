@@ -0,0 +1,58 @@
+package spw4.game2048.leaderboard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The best {@code capacity} scores, kept in a concurrent skip list.
+ * <p>
+ * Once the list is full, a score that does not beat the current last place is turned away after
+ * one O(log n) lookup, which is what almost every submission does. Better scores are inserted
+ * and the last place is dropped. Readers iterate the skip list without locks; they may briefly
+ * see one score more than the capacity while a writer is trimming.
+ */
+public final class TopK {
+    // ranks after every real score, so lower(WORST) is the last place
+    private static final Score WORST = new Score(new UUID(Long.MAX_VALUE, Long.MAX_VALUE), Integer.MIN_VALUE,
+            Integer.MAX_VALUE, 0, 0, false, Long.MAX_VALUE);
+
+    private final int capacity;
+    private final ConcurrentSkipListSet<Score> scores = new ConcurrentSkipListSet<>(Score.RANKING);
+    private final AtomicInteger size = new AtomicInteger();
+
+    public TopK(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException();
+        this.capacity = capacity;
+    }
+
+    // true if the score was inserted; a concurrent better score may still push it off again
+    public boolean offer(Score score) {
+        if (size.get() >= capacity) {
+            Score last = scores.lower(WORST);
+            if (last != null && Score.RANKING.compare(score, last) >= 0) return false;
+        }
+        if (!scores.add(score)) return false;
+        if (size.incrementAndGet() > capacity && scores.pollLast() != null) {
+            size.decrementAndGet();
+        }
+        return true;
+    }
+
+    // the best scores, at most limit of them
+    public List<Score> top(int limit) {
+        int n = Math.min(limit, capacity);
+        List<Score> top = new ArrayList<>(Math.min(n, size.get()));
+        for (Score score : scores) {
+            if (top.size() >= n) break;
+            top.add(score);
+        }
+        return top;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
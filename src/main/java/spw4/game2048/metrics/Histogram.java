@@ -0,0 +1,78 @@
+package spw4.game2048.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram with log-linear buckets in the style of HdrHistogram: every power of two is
+ * split into 8 linear sub-buckets, so a recorded value is known to within 12.5%. Values are
+ * non-negative, typically nanoseconds; values of 2^40 and above (about 18 minutes) are clamped.
+ * <p>
+ * Recording is one array increment plus one adder, so it is cheap enough for every request.
+ * Readers see each bucket atomically but not all of them at one instant, which is fine for export.
+ */
+public final class Histogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_BITS = 40;
+    static final int BUCKETS = (MAX_BITS - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        } else if (value >= 1L << MAX_BITS) {
+            value = (1L << MAX_BITS) - 1;
+        }
+        counts.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+    }
+
+    // records the time since start, a System.nanoTime() value
+    public void recordSince(long start) {
+        record(System.nanoTime() - start);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long sum() {
+        return sum.sum();
+    }
+
+    // the highest value of the bucket holding the given quantile, 0 if nothing was recorded
+    public long valueAtQuantile(double quantile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) return highestValue(i);
+        }
+        return highestValue(BUCKETS - 1);
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + (int) (value >>> (exponent - SUB_BITS)) - SUB_BUCKETS;
+    }
+
+    static long highestValue(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
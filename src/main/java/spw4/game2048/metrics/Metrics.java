@@ -0,0 +1,199 @@
+package spw4.game2048.metrics;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Registry of counters, gauges and histograms, exported in the Prometheus text format and over JMX.
+ * <p>
+ * Metrics are registered once at startup and then updated without locks: counters are
+ * {@link LongAdder}s, gauges are read from their supplier on export and histograms are
+ * {@link Histogram}s of nanoseconds, exported as Prometheus summaries in seconds.
+ */
+public class Metrics {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String[] QUANTILE_NAMES = {"p50", "p90", "p99", "p999"};
+
+    private final Map<String, Family> families = new LinkedHashMap<>();
+    private ObjectName objectName;
+
+    public LongAdder counter(String name, String help) {
+        return counter(name, "", help);
+    }
+
+    // labels is the Prometheus label list without braces, e.g. direction="up"
+    public LongAdder counter(String name, String labels, String help) {
+        LongAdder counter = new LongAdder();
+        add(name, "counter", help, labels, (LongSupplier) counter::sum);
+        return counter;
+    }
+
+    // a counter that is kept elsewhere, e.g. by a store
+    public void counter(String name, String help, LongSupplier value) {
+        add(name, "counter", help, "", value);
+    }
+
+    public void gauge(String name, String help, LongSupplier value) {
+        add(name, "gauge", help, "", value);
+    }
+
+    public Histogram histogram(String name, String help) {
+        Histogram histogram = new Histogram();
+        add(name, "summary", help, "", histogram);
+        return histogram;
+    }
+
+    private synchronized void add(String name, String type, String help, String labels, Object source) {
+        Family family = families.computeIfAbsent(name, n -> new Family(type, help));
+        if (!family.type.equals(type)) throw new IllegalArgumentException(name + " is a " + family.type);
+        if (family.samples.containsKey(labels)) throw new IllegalArgumentException(name + "{" + labels + "} exists");
+        family.samples.put(labels, source);
+    }
+
+    public synchronized void writeTo(Appendable out) throws IOException {
+        for (Map.Entry<String, Family> entry : families.entrySet()) {
+            String name = entry.getKey();
+            Family family = entry.getValue();
+            out.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, Object> sample : family.samples.entrySet()) {
+                String labels = sample.getKey();
+                if (sample.getValue() instanceof Histogram) {
+                    Histogram histogram = (Histogram) sample.getValue();
+                    String prefix = labels.isEmpty() ? "" : labels + ",";
+                    for (double quantile : QUANTILES) {
+                        line(out, name, prefix + "quantile=\"" + quantile + "\"",
+                                seconds(histogram.valueAtQuantile(quantile)));
+                    }
+                    line(out, name + "_sum", labels, seconds(histogram.sum()));
+                    line(out, name + "_count", labels, Long.toString(histogram.count()));
+                } else {
+                    line(out, name, labels, Long.toString(((LongSupplier) sample.getValue()).getAsLong()));
+                }
+            }
+        }
+    }
+
+    private static void line(Appendable out, String name, String labels, String value) throws IOException {
+        out.append(name);
+        if (!labels.isEmpty()) out.append('{').append(labels).append('}');
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+
+    // all values as JMX attributes; histograms as count, sum and quantiles in nanoseconds
+    synchronized Map<String, LongSupplier> attributes() {
+        Map<String, LongSupplier> attributes = new LinkedHashMap<>();
+        for (Map.Entry<String, Family> entry : families.entrySet()) {
+            for (Map.Entry<String, Object> sample : entry.getValue().samples.entrySet()) {
+                String name = entry.getKey();
+                if (!sample.getKey().isEmpty()) {
+                    name += "." + sample.getKey().replaceAll("[^,=]+=\"([^\"]*)\"", "$1").replace(',', '.');
+                }
+                if (sample.getValue() instanceof Histogram) {
+                    Histogram histogram = (Histogram) sample.getValue();
+                    attributes.put(name + ".count", histogram::count);
+                    attributes.put(name + ".sum", histogram::sum);
+                    for (int i = 0; i < QUANTILES.length; i++) {
+                        double quantile = QUANTILES[i];
+                        attributes.put(name + "." + QUANTILE_NAMES[i], () -> histogram.valueAtQuantile(quantile));
+                    }
+                } else {
+                    attributes.put(name, (LongSupplier) sample.getValue());
+                }
+            }
+        }
+        return attributes;
+    }
+
+    // registers the metrics with the platform MBean server, replacing what was registered under the name
+    public synchronized void registerMBean(ObjectName name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(name)) server.unregisterMBean(name);
+        server.registerMBean(new MetricsMBean(), name);
+        objectName = name;
+    }
+
+    public synchronized void unregisterMBean() throws JMException {
+        if (objectName != null) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            objectName = null;
+        }
+    }
+
+    private static final class Family {
+        final String type;
+        final String help;
+        // by label list, each a LongSupplier or a Histogram
+        final Map<String, Object> samples = new LinkedHashMap<>();
+
+        Family(String type, String help) {
+            this.type = type;
+            this.help = help;
+        }
+    }
+
+    private class MetricsMBean implements DynamicMBean {
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            LongSupplier value = attributes().get(attribute);
+            if (value == null) throw new AttributeNotFoundException(attribute);
+            return value.getAsLong();
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] names) {
+            Map<String, LongSupplier> attributes = attributes();
+            AttributeList list = new AttributeList();
+            for (String name : names) {
+                LongSupplier value = attributes.get(name);
+                if (value != null) list.add(new Attribute(name, value.getAsLong()));
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String action, Object[] params, String[] signature) {
+            throw new UnsupportedOperationException(action);
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> infos = new ArrayList<>();
+            for (String name : attributes().keySet()) {
+                infos.add(new MBeanAttributeInfo(name, "long", name, true, false, false));
+            }
+            return new MBeanInfo(Metrics.class.getName(), "game2048 metrics",
+                    infos.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package spw4.game2048.metrics;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sampled tracing of request phases into a fixed ring buffer.
+ * <p>
+ * A request calls {@link #begin()} once and passes the returned trace id along; the other methods
+ * return at once for trace id 0, which is what {@code begin} returns when tracing is off or the
+ * request is not sampled. Disabled tracing therefore costs one volatile read per request and a
+ * compare per phase, so the calls can stay on hot paths.
+ * <p>
+ * Spans are written into preallocated primitive arrays without locks; each slot carries a sequence
+ * number that is cleared while it is written, and readers skip slots that changed under them.
+ * Old spans are overwritten once the buffer is full.
+ */
+public final class Tracer {
+
+    public enum Phase {parse, lookup, over, move, journal, render, write, request}
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final long[] traces;
+    private final long[] starts;
+    private final long[] durations;
+    private final byte[] phases;
+    private final AtomicLong cursor = new AtomicLong();
+    private final AtomicLong nextTrace = new AtomicLong();
+    // to print span starts as wall-clock times
+    private final long originNanos = System.nanoTime();
+    private final long originMillis = System.currentTimeMillis();
+    private volatile int sampleEvery;
+
+    // capacity is rounded down to a power of two; sampleEvery 0 disables tracing, 1 traces every request
+    public Tracer(int capacity, int sampleEvery) {
+        if (capacity < 1) throw new IllegalArgumentException();
+        int size = Integer.highestOneBit(capacity);
+        mask = size - 1;
+        sequences = new AtomicLongArray(size);
+        traces = new long[size];
+        starts = new long[size];
+        durations = new long[size];
+        phases = new byte[size];
+        setSampleEvery(sampleEvery);
+    }
+
+    public int getSampleEvery() {
+        return sampleEvery;
+    }
+
+    public void setSampleEvery(int sampleEvery) {
+        if (sampleEvery < 0) throw new IllegalArgumentException();
+        this.sampleEvery = sampleEvery;
+    }
+
+    // a new trace id if this request is sampled, otherwise 0
+    public long begin() {
+        int every = sampleEvery;
+        if (every == 0) return 0;
+        if (every > 1 && ThreadLocalRandom.current().nextInt(every) != 0) return 0;
+        return nextTrace.incrementAndGet();
+    }
+
+    // System.nanoTime() if the request is traced, otherwise 0
+    public static long now(long trace) {
+        return trace == 0 ? 0 : System.nanoTime();
+    }
+
+    // records the phase from start until now; returns now, the start of the next phase
+    public long span(long trace, Phase phase, long start) {
+        if (trace == 0) return 0;
+        long end = System.nanoTime();
+        record(trace, phase, start, end - start);
+        return end;
+    }
+
+    private void record(long trace, Phase phase, long start, long duration) {
+        long sequence = cursor.incrementAndGet();
+        int slot = (int) sequence & mask;
+        sequences.set(slot, 0);
+        VarHandle.storeStoreFence();
+        traces[slot] = trace;
+        starts[slot] = start;
+        durations[slot] = duration;
+        phases[slot] = (byte) phase.ordinal();
+        sequences.set(slot, sequence);
+    }
+
+    // writes the buffered spans, oldest first, one per line: trace id, phase, start in epoch microseconds, nanoseconds
+    public void writeTo(Appendable out) throws IOException {
+        out.append("# trace phase start_us duration_ns\n");
+        long last = cursor.get();
+        for (long sequence = Math.max(1, last - mask); sequence <= last; sequence++) {
+            int slot = (int) sequence & mask;
+            if (sequences.get(slot) != sequence) continue;
+            long trace = traces[slot];
+            long start = starts[slot];
+            long duration = durations[slot];
+            int phase = phases[slot];
+            VarHandle.loadLoadFence();
+            if (sequences.get(slot) != sequence) continue;
+            long startMicros = originMillis * 1000 + (start - originNanos) / 1000;
+            out.append(Long.toString(trace)).append(' ').append(PHASES[phase].name()).append(' ')
+                    .append(Long.toString(startMicros)).append(' ').append(Long.toString(duration)).append('\n');
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package spw4.game2048.replay;
+
+import spw4.game2048.Game;
+import spw4.game2048.RandomSpawner;
+import spw4.game2048.SplitMixSpawner;
+import spw4.game2048.TileSpawner;
+
+import java.util.Random;
+
+/**
+ * Binary replay of one game: the seed of the game's tile spawner plus the stream of accepted moves.
+ * Spawned tiles are not stored, they are re-derived by replaying the moves on a game with the same seed.
+ * Version 2 seeds a {@link SplitMixSpawner}, version 1 replays were recorded with a {@link java.util.Random}.
+ * <pre>
+ * header  int magic, byte version, long seed
+ * chunk   unsigned varint n (1..{@value #CHUNK_MOVES}), then ceil(n / 4) bytes holding
+ *         2 bits per move (direction ordinal), first move in the lowest bits
+ * end     a chunk with n = 0
+ * </pre>
+ */
+public final class ReplayFormat {
+
+    public static final int MAGIC = 0x32303438;
+    public static final int VERSION = 2;
+    public static final int CHUNK_MOVES = 4096;
+
+    private ReplayFormat() {
+    }
+
+    // the game a replay with this seed starts from
+    public static Game newGame(long seed) {
+        return newGame(seed, VERSION);
+    }
+
+    static Game newGame(long seed, int version) {
+        TileSpawner spawner = version == 1 ? new RandomSpawner(new Random(seed)) : new SplitMixSpawner(seed);
+        Game game = new Game(spawner);
+        game.initialize();
+        return game;
+    }
+}
@@ -0,0 +1,87 @@
+package spw4.game2048.replay;
+
+import spw4.game2048.Direction;
+import spw4.game2048.Game;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streams the moves of a replay in the {@link ReplayFormat} and rebuilds game states from them.
+ */
+public class ReplayReader implements Closeable {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final DataInputStream in;
+    private final int version;
+    private final long seed;
+    private final byte[] chunk = new byte[ReplayFormat.CHUNK_MOVES / 4];
+    private int chunkMoves;
+    private int next;
+    private boolean finished;
+
+    public ReplayReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(in);
+        if (this.in.readInt() != ReplayFormat.MAGIC) throw new IOException("not a replay");
+        version = this.in.readUnsignedByte();
+        if (version < 1 || version > ReplayFormat.VERSION) throw new IOException("unsupported replay version " + version);
+        seed = this.in.readLong();
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    // next recorded move, or null at the end of the replay
+    public Direction next() throws IOException {
+        if (next == chunkMoves) {
+            if (finished) return null;
+            chunkMoves = readVarInt();
+            next = 0;
+            if (chunkMoves == 0) {
+                finished = true;
+                return null;
+            }
+            if (chunkMoves > ReplayFormat.CHUNK_MOVES) throw new IOException("corrupt replay chunk");
+            in.readFully(chunk, 0, (chunkMoves + 3) / 4);
+        }
+        int bits = chunk[next / 4] >>> 2 * (next % 4) & 0b11;
+        next++;
+        return DIRECTIONS[bits];
+    }
+
+    // the game after the given number of moves, or after the last move if the replay is shorter;
+    // consumes the moves it replays, so it is meant for a freshly opened reader
+    public Game gameAfter(long moves) throws IOException {
+        Game game = ReplayFormat.newGame(seed, version);
+        Direction direction;
+        for (long i = 0; i < moves && (direction = next()) != null; i++) {
+            if (!game.move(direction)) throw new IOException("replay diverged at move " + i);
+        }
+        return game;
+    }
+
+    public Game finalGame() throws IOException {
+        return gameAfter(Long.MAX_VALUE);
+    }
+
+    private int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.read();
+            if (b < 0) throw new EOFException("truncated replay");
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("corrupt replay chunk");
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
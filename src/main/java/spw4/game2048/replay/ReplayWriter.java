@@ -0,0 +1,72 @@
+package spw4.game2048.replay;
+
+import spw4.game2048.Direction;
+import spw4.game2048.Game;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Streams a replay in the {@link ReplayFormat}; only a chunk of moves is buffered at a time.
+ */
+public class ReplayWriter implements Closeable {
+
+    private final DataOutputStream out;
+    private final byte[] chunk = new byte[ReplayFormat.CHUNK_MOVES / 4];
+    private int moves;
+    private long totalMoves;
+
+    public ReplayWriter(OutputStream out, long seed) throws IOException {
+        this.out = new DataOutputStream(out);
+        this.out.writeInt(ReplayFormat.MAGIC);
+        this.out.writeByte(ReplayFormat.VERSION);
+        this.out.writeLong(seed);
+    }
+
+    // moves the game and records the move if it was accepted
+    public boolean move(Game game, Direction direction) throws IOException {
+        if (!game.move(direction)) return false;
+        append(direction);
+        return true;
+    }
+
+    // the move must have changed the board, otherwise the replay will diverge
+    public void append(Direction direction) throws IOException {
+        chunk[moves / 4] |= (byte) (direction.ordinal() << 2 * (moves % 4));
+        moves++;
+        totalMoves++;
+        if (moves == ReplayFormat.CHUNK_MOVES) {
+            flushChunk();
+        }
+    }
+
+    public long getMoves() {
+        return totalMoves;
+    }
+
+    private void flushChunk() throws IOException {
+        if (moves == 0) return;
+        writeVarInt(moves);
+        out.write(chunk, 0, (moves + 3) / 4);
+        Arrays.fill(chunk, (byte) 0);
+        moves = 0;
+    }
+
+    private void writeVarInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    @Override
+    public void close() throws IOException {
+        flushChunk();
+        writeVarInt(0);
+        out.close();
+    }
+}
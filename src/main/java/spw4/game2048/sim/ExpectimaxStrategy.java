@@ -0,0 +1,20 @@
+package spw4.game2048.sim;
+
+import spw4.game2048.Direction;
+import spw4.game2048.Game;
+import spw4.game2048.ai.Expectimax;
+import spw4.game2048.ai.WeightedHeuristic;
+
+public class ExpectimaxStrategy implements Strategy {
+
+    private final Expectimax expectimax;
+
+    public ExpectimaxStrategy(int depth) {
+        expectimax = new Expectimax(WeightedHeuristic.standard(), depth);
+    }
+
+    @Override
+    public Direction nextMove(Game game) {
+        return expectimax.bestMove(game);
+    }
+}
@@ -0,0 +1,26 @@
+package spw4.game2048.sim;
+
+import spw4.game2048.Bitboard;
+import spw4.game2048.Direction;
+import spw4.game2048.Game;
+
+// takes the move with the highest immediate score, ties broken by the number of empty cells
+public class GreedyStrategy implements Strategy {
+
+    @Override
+    public Direction nextMove(Game game) {
+        long board = game.getBoard();
+        Direction best = null;
+        long bestValue = -1;
+        for (Direction direction : Direction.values()) {
+            if (!game.canMove(direction)) continue;
+            long moved = Bitboard.move(board, direction);
+            long value = (long) Bitboard.score(board, direction) * 32 + Bitboard.countEmpty(moved);
+            if (value > bestValue) {
+                best = direction;
+                bestValue = value;
+            }
+        }
+        return best;
+    }
+}
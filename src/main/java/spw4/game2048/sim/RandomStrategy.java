@@ -0,0 +1,27 @@
+package spw4.game2048.sim;
+
+import spw4.game2048.Direction;
+import spw4.game2048.Game;
+
+import java.util.Random;
+
+public class RandomStrategy implements Strategy {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private final Random random = new Random();
+
+    @Override
+    public Direction nextMove(Game game) {
+        int legal = game.getLegalMoves();
+        int pick = random.nextInt(Integer.bitCount(legal));
+        for (int i = 0; i < pick; i++) {
+            legal &= legal - 1;
+        }
+        return DIRECTIONS[Integer.numberOfTrailingZeros(legal)];
+    }
+
+    @Override
+    public void reset(long seed) {
+        random.setSeed(seed);
+    }
+}
@@ -0,0 +1,99 @@
+package spw4.game2048.sim;
+
+import spw4.game2048.Bitboard;
+import spw4.game2048.Game;
+
+import java.io.PrintStream;
+
+/**
+ * Running totals over finished games. Only aggregates are kept, so memory does not grow with the
+ * number of games; per-thread instances are combined with {@link #merge(SimulationStats)}.
+ */
+public class SimulationStats {
+
+    private long games;
+    private long wins;
+    private long totalScore;
+    private long totalMoves;
+    private int minScore = Integer.MAX_VALUE;
+    private int maxScore;
+    // bucket i counts scores in [2^(i-1), 2^i), bucket 0 counts zero scores
+    private final long[] scoreHistogram = new long[Integer.SIZE + 1];
+    private final long[] maxTileHistogram = new long[Bitboard.MAX_EXPONENT + 1];
+
+    public void add(Game game) {
+        games++;
+        if (game.isWon()) wins++;
+        totalScore += game.getScore();
+        totalMoves += game.getMoves();
+        minScore = Math.min(minScore, game.getScore());
+        maxScore = Math.max(maxScore, game.getScore());
+        scoreHistogram[Integer.SIZE - Integer.numberOfLeadingZeros(game.getScore())]++;
+        maxTileHistogram[Bitboard.maxExponent(game.getBoard())]++;
+    }
+
+    public void merge(SimulationStats other) {
+        games += other.games;
+        wins += other.wins;
+        totalScore += other.totalScore;
+        totalMoves += other.totalMoves;
+        minScore = Math.min(minScore, other.minScore);
+        maxScore = Math.max(maxScore, other.maxScore);
+        for (int i = 0; i < scoreHistogram.length; i++) {
+            scoreHistogram[i] += other.scoreHistogram[i];
+        }
+        for (int i = 0; i < maxTileHistogram.length; i++) {
+            maxTileHistogram[i] += other.maxTileHistogram[i];
+        }
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public long getWins() {
+        return wins;
+    }
+
+    public double getWinRate() {
+        return games == 0 ? 0 : (double) wins / games;
+    }
+
+    public double getAverageScore() {
+        return games == 0 ? 0 : (double) totalScore / games;
+    }
+
+    public double getAverageMoves() {
+        return games == 0 ? 0 : (double) totalMoves / games;
+    }
+
+    public int getMinScore() {
+        return games == 0 ? 0 : minScore;
+    }
+
+    public int getMaxScore() {
+        return maxScore;
+    }
+
+    public long getGamesWithMaxTile(int value) {
+        return maxTileHistogram[Bitboard.toExponent(value)];
+    }
+
+    public void print(PrintStream out) {
+        out.printf("games:         %d%n", games);
+        out.printf("win rate:      %.2f%%%n", 100 * getWinRate());
+        out.printf("score:         avg %.1f, min %d, max %d%n", getAverageScore(), getMinScore(), maxScore);
+        out.printf("moves/game:    %.1f%n", getAverageMoves());
+        out.println("score distribution:");
+        for (int i = 0; i < scoreHistogram.length; i++) {
+            if (scoreHistogram[i] == 0) continue;
+            long from = i == 0 ? 0 : 1L << (i - 1);
+            out.printf("  %10d - %-10d %6.2f%%%n", from, (1L << i) - 1, 100.0 * scoreHistogram[i] / games);
+        }
+        out.println("max tile:");
+        for (int i = 0; i < maxTileHistogram.length; i++) {
+            if (maxTileHistogram[i] == 0) continue;
+            out.printf("  %10d %6.2f%%%n", Bitboard.toValue(i), 100.0 * maxTileHistogram[i] / games);
+        }
+    }
+}
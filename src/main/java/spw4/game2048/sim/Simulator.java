@@ -0,0 +1,151 @@
+package spw4.game2048.sim;
+
+import spw4.game2048.Game;
+import spw4.game2048.SplitMixSpawner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Headless batch runner: plays many games with one strategy instance per worker thread.
+ * Game {@code i} is seeded from the master seed and {@code i} alone, so results do not depend on
+ * the number of threads or on which thread plays which game.
+ */
+public class Simulator {
+
+    private static final int BATCH = 1000;
+
+    private final Supplier<Strategy> strategies;
+    private final int threads;
+
+    public Simulator(Supplier<Strategy> strategies, int threads) {
+        if (threads < 1) throw new IllegalArgumentException();
+        this.strategies = strategies;
+        this.threads = threads;
+    }
+
+    public SimulationStats run(long games, long masterSeed) {
+        return run(games, masterSeed, stats -> { });
+    }
+
+    // progress is called with the running totals whenever a worker has finished a batch of games
+    public SimulationStats run(long games, long masterSeed, Consumer<SimulationStats> progress) {
+        SimulationStats total = new SimulationStats();
+        AtomicLong next = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                workers.add(executor.submit(() -> play(games, masterSeed, next, total, progress)));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return total;
+    }
+
+    private void play(long games, long masterSeed, AtomicLong next, SimulationStats total, Consumer<SimulationStats> progress) {
+        Strategy strategy = strategies.get();
+        SimulationStats batch = new SimulationStats();
+        long index;
+        while ((index = next.getAndIncrement()) < games) {
+            long seed = gameSeed(masterSeed, index);
+            Game game = new Game(new SplitMixSpawner(seed));
+            game.initialize();
+            strategy.reset(mix(seed));
+            while (!game.isOver()) {
+                game.move(strategy.nextMove(game));
+            }
+            batch.add(game);
+
+            if (batch.getGames() == BATCH) {
+                flush(batch, total, progress);
+                batch = new SimulationStats();
+            }
+        }
+        flush(batch, total, progress);
+    }
+
+    private static void flush(SimulationStats batch, SimulationStats total, Consumer<SimulationStats> progress) {
+        if (batch.getGames() == 0) return;
+        synchronized (total) {
+            total.merge(batch);
+            progress.accept(total);
+        }
+    }
+
+    static long gameSeed(long masterSeed, long index) {
+        return mix(masterSeed + index * 0x9E3779B97F4A7C15L);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public static void main(String[] args) {
+        long games = 10_000;
+        long seed = 2048;
+        String strategy = "greedy";
+        int depth = 2;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (String arg : args) {
+            String[] option = arg.split("=", 2);
+            if (option.length != 2) {
+                printUsage();
+                return;
+            }
+            switch (option[0]) {
+                case "--games": games = Long.parseLong(option[1]); break;
+                case "--seed": seed = Long.parseLong(option[1]); break;
+                case "--strategy": strategy = option[1]; break;
+                case "--depth": depth = Integer.parseInt(option[1]); break;
+                case "--threads": threads = Integer.parseInt(option[1]); break;
+                default: printUsage(); return;
+            }
+        }
+
+        Supplier<Strategy> strategies;
+        int searchDepth = depth;
+        switch (strategy) {
+            case "random": strategies = RandomStrategy::new; break;
+            case "greedy": strategies = GreedyStrategy::new; break;
+            case "expectimax": strategies = () -> new ExpectimaxStrategy(searchDepth); break;
+            default: printUsage(); return;
+        }
+
+        long start = System.nanoTime();
+        long reportEvery = Math.max(BATCH, games / 20);
+        AtomicLong reported = new AtomicLong();
+        SimulationStats stats = new Simulator(strategies, threads).run(games, seed, running -> {
+            if (running.getGames() - reported.get() >= reportEvery) {
+                reported.set(running.getGames());
+                System.out.printf("%d games, avg score %.1f, win rate %.2f%%%n",
+                        running.getGames(), running.getAverageScore(), 100 * running.getWinRate());
+            }
+        });
+        stats.print(System.out);
+        System.out.printf("time:          %.1f s%n", (System.nanoTime() - start) / 1e9);
+    }
+
+    private static void printUsage() {
+        System.out.println("usage: Simulator [--games=N] [--seed=S] [--strategy=random|greedy|expectimax] [--depth=D] [--threads=T]");
+    }
+}
@@ -0,0 +1,17 @@
+package spw4.game2048.sim;
+
+import spw4.game2048.Direction;
+import spw4.game2048.Game;
+
+/**
+ * Picks the next move of a simulated game. Instances are used by one thread at a time
+ * and are reset with the game's seed before every game, so runs are reproducible.
+ */
+public interface Strategy {
+
+    // only called while the game is not over, must return a legal move
+    Direction nextMove(Game game);
+
+    default void reset(long seed) {
+    }
+}
@@ -0,0 +1,107 @@
+package spw4.game2048.store;
+
+import spw4.game2048.Game;
+import spw4.game2048.SplitMixSpawner;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Fixed-size binary layout of one stored game, shared by the off-heap and mapped stores.
+ * <pre>
+ *  0  id, most significant bits   long
+ *  8  id, least significant bits  long
+ * 16  packed board                long
+ * 24  tile spawner state          long
+ * 32  score                       int
+ * 36  moves                       int
+ * 40  last access, epoch seconds int, unsigned
+ * 44  state                       int
+ * </pre>
+ * Stored games get a {@link SplitMixSpawner} that continues exactly where the original spawner was,
+ * so a record fully determines all future tiles of its game. Games with a spawner that cannot expose
+ * its state cannot be stored, and neither can games with another size or winning value.
+ */
+final class GameRecord {
+
+    static final int SIZE = 48;
+
+    static final int FREE = 0;
+    static final int USED = 1;
+    static final int DELETED = 2;
+
+    private static final int ID_MSB = 0;
+    private static final int ID_LSB = 8;
+    private static final int BOARD = 16;
+    private static final int SPAWNER = 24;
+    private static final int SCORE = 32;
+    private static final int MOVES = 36;
+    private static final int LAST_ACCESS = 40;
+    private static final int STATE = 44;
+
+    private GameRecord() {
+    }
+
+    static void write(ByteBuffer buffer, int offset, UUID id, Game game, int lastAccess) {
+        buffer.putLong(offset + ID_MSB, id.getMostSignificantBits());
+        buffer.putLong(offset + ID_LSB, id.getLeastSignificantBits());
+        writeGame(buffer, offset, game, lastAccess);
+        buffer.putInt(offset + STATE, USED);
+    }
+
+    // IllegalArgumentException unless the game fits a record; stores call this before changing anything
+    static void checkStorable(Game game) {
+        if (!game.isStandard()) throw new IllegalArgumentException("only standard 4x4 games can be stored");
+        if (!game.getSpawner().hasState()) throw new IllegalArgumentException("the game's spawner state cannot be stored");
+    }
+
+    static void writeGame(ByteBuffer buffer, int offset, Game game, int lastAccess) {
+        checkStorable(game);
+        long spawner = game.getSpawner().getState();
+        buffer.putLong(offset + BOARD, game.getBoard());
+        buffer.putLong(offset + SPAWNER, spawner);
+        buffer.putInt(offset + SCORE, game.getScore());
+        buffer.putInt(offset + MOVES, game.getMoves());
+        buffer.putInt(offset + LAST_ACCESS, lastAccess);
+    }
+
+    static Game readGame(ByteBuffer buffer, int offset) {
+        return new Game(buffer.getLong(offset + BOARD), buffer.getInt(offset + SCORE),
+                buffer.getInt(offset + MOVES), new SplitMixSpawner(buffer.getLong(offset + SPAWNER)));
+    }
+
+    static void copy(ByteBuffer from, int fromOffset, ByteBuffer to, int toOffset) {
+        for (int i = 0; i < SIZE; i += Long.BYTES) {
+            to.putLong(toOffset + i, from.getLong(fromOffset + i));
+        }
+    }
+
+    static boolean hasId(ByteBuffer buffer, int offset, UUID id) {
+        return buffer.getLong(offset + ID_MSB) == id.getMostSignificantBits()
+                && buffer.getLong(offset + ID_LSB) == id.getLeastSignificantBits();
+    }
+
+    static UUID readId(ByteBuffer buffer, int offset) {
+        return new UUID(buffer.getLong(offset + ID_MSB), buffer.getLong(offset + ID_LSB));
+    }
+
+    static long lastAccessMillis(ByteBuffer buffer, int offset) {
+        return Integer.toUnsignedLong(buffer.getInt(offset + LAST_ACCESS)) * 1000;
+    }
+
+    static void touch(ByteBuffer buffer, int offset, int lastAccess) {
+        buffer.putInt(offset + LAST_ACCESS, lastAccess);
+    }
+
+    static int seconds(long millis) {
+        return (int) (millis / 1000);
+    }
+
+    static int state(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset + STATE);
+    }
+
+    static void setState(ByteBuffer buffer, int offset, int state) {
+        buffer.putInt(offset + STATE, state);
+    }
+}
@@ -0,0 +1,26 @@
+package spw4.game2048.store;
+
+import spw4.game2048.Game;
+
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Keeps the running games of all sessions, keyed by game id.
+ * <p>
+ * Games are only handed out inside {@link #withGame(UUID, Function)}, which holds the game's lock
+ * for the duration of the action, so two requests on the same id never interleave.
+ */
+public interface GameStore {
+
+    void put(UUID id, Game game);
+
+    // returns null without calling the action if there is no game with this id
+    <T> T withGame(UUID id, Function<Game, T> action);
+
+    boolean remove(UUID id);
+
+    int size();
+
+    long getEvictions();
+}
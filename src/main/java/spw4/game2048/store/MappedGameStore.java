@@ -0,0 +1,277 @@
+package spw4.game2048.store;
+
+import spw4.game2048.Game;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Store whose {@link GameRecord}s live in a memory-mapped file, so games survive a redeploy.
+ * <p>
+ * Records are appended after the highest slot ever used; slots of removed games go to a free list
+ * and are reused first. Opening an existing file only scans the record ids to rebuild the
+ * in-memory index and free list, games themselves are read from the mapping when accessed.
+ * Updates are written straight into the mapped region; {@link #flush()} forces them to disk.
+ * <p>
+ * When the file is full, a new game evicts the least recently accessed of a sample of
+ * {@value #EVICTION_SAMPLE} games taken by a clock hand, plus any expired game in the sample. Samples are
+ * read without locks and re-checked under the victim's stripe lock before it is evicted.
+ */
+public class MappedGameStore implements GameStore, Closeable {
+
+    private static final int MAGIC = 0x32303438;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_CAPACITY = 8;
+    private static final int HEADER_HIGH_WATER = 12;
+    private static final int RECORDS_PER_SEGMENT = 1 << 20;
+    private static final int LOCK_STRIPES = 1024;
+    private static final int EVICTION_SAMPLE = 16;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final MappedByteBuffer[] segments;
+    private final int capacity;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<UUID, Integer> index = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final LongAdder evictions = new LongAdder();
+    private final AtomicInteger hand = new AtomicInteger();
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int highWater;
+
+    public MappedGameStore(Path file, int capacity, long ttlMillis) throws IOException {
+        this(file, capacity, ttlMillis, System::currentTimeMillis);
+    }
+
+    public MappedGameStore(Path file, int capacity, long ttlMillis, LongSupplier clock) throws IOException {
+        if (capacity < 1 || ttlMillis < 1) throw new IllegalArgumentException();
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        if (header.getInt(HEADER_MAGIC) == 0) {
+            header.putInt(HEADER_MAGIC, MAGIC);
+            header.putInt(HEADER_VERSION, VERSION);
+            header.putInt(HEADER_CAPACITY, capacity);
+            header.putInt(HEADER_HIGH_WATER, 0);
+        } else if (header.getInt(HEADER_MAGIC) != MAGIC || header.getInt(HEADER_VERSION) != VERSION) {
+            channel.close();
+            throw new IOException("not a game store: " + file);
+        }
+        this.capacity = header.getInt(HEADER_CAPACITY);
+
+        segments = new MappedByteBuffer[(this.capacity + RECORDS_PER_SEGMENT - 1) / RECORDS_PER_SEGMENT];
+        for (int i = 0; i < segments.length; i++) {
+            int records = Math.min(RECORDS_PER_SEGMENT, this.capacity - i * RECORDS_PER_SEGMENT);
+            long position = HEADER_SIZE + (long) i * RECORDS_PER_SEGMENT * GameRecord.SIZE;
+            segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, (long) records * GameRecord.SIZE);
+        }
+        load();
+    }
+
+    private void load() {
+        highWater = header.getInt(HEADER_HIGH_WATER);
+        for (int slot = 0; slot < highWater; slot++) {
+            ByteBuffer segment = segment(slot);
+            int offset = offset(slot);
+            if (GameRecord.state(segment, offset) == GameRecord.USED) {
+                index.put(GameRecord.readId(segment, offset), slot);
+            } else {
+                pushFree(slot);
+            }
+        }
+    }
+
+    @Override
+    public void put(UUID id, Game game) {
+        GameRecord.checkStorable(game);
+        int now = GameRecord.seconds(clock.getAsLong());
+        while (true) {
+            if (index.size() >= capacity && !index.containsKey(id)) {
+                evictSample();
+            }
+            synchronized (lock(id)) {
+                Integer slot = index.get(id);
+                if (slot != null) {
+                    GameRecord.writeGame(segment(slot), offset(slot), game, now);
+                    return;
+                }
+                int newSlot = allocate();
+                if (newSlot >= 0) {
+                    GameRecord.write(segment(newSlot), offset(newSlot), id, game, now);
+                    index.put(id, newSlot);
+                    return;
+                }
+            }
+            // another put took the freed slot, sample again
+        }
+    }
+
+    @Override
+    public <T> T withGame(UUID id, Function<Game, T> action) {
+        long now = clock.getAsLong();
+        synchronized (lock(id)) {
+            Integer slot = index.get(id);
+            if (slot == null) return null;
+            ByteBuffer segment = segment(slot);
+            int offset = offset(slot);
+            if (now - GameRecord.lastAccessMillis(segment, offset) > ttlMillis) {
+                release(id, slot);
+                evictions.increment();
+                return null;
+            }
+
+            Game game = GameRecord.readGame(segment, offset);
+            T result = action.apply(game);
+            GameRecord.writeGame(segment, offset, game, GameRecord.seconds(now));
+            return result;
+        }
+    }
+
+    @Override
+    public boolean remove(UUID id) {
+        synchronized (lock(id)) {
+            Integer slot = index.get(id);
+            if (slot == null) return false;
+            release(id, slot);
+            return true;
+        }
+    }
+
+    public void evictExpired() {
+        long now = clock.getAsLong();
+        for (UUID id : index.keySet()) {
+            synchronized (lock(id)) {
+                Integer slot = index.get(id);
+                if (slot != null && now - GameRecord.lastAccessMillis(segment(slot), offset(slot)) > ttlMillis) {
+                    release(id, slot);
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    private void evictSample() {
+        long now = clock.getAsLong();
+        int used;
+        synchronized (this) {
+            used = highWater;
+        }
+        int victim = -1;
+        long oldest = Long.MAX_VALUE;
+        int sampled = 0;
+        for (int probe = 0; probe < used && sampled < EVICTION_SAMPLE; probe++) {
+            int slot = Math.floorMod(hand.getAndIncrement(), used);
+            if (GameRecord.state(segment(slot), offset(slot)) != GameRecord.USED) continue;
+            sampled++;
+            long access = GameRecord.lastAccessMillis(segment(slot), offset(slot));
+            if (now - access > ttlMillis) {
+                evict(slot, now - ttlMillis);
+            } else if (access < oldest) {
+                oldest = access;
+                victim = slot;
+            }
+        }
+        if (index.size() >= capacity && victim >= 0) {
+            evict(victim, oldest + 1);
+        }
+    }
+
+    // evicts the game in the slot unless it was accessed at or after the given time or moved meanwhile
+    private void evict(int slot, long accessedBefore) {
+        UUID id = GameRecord.readId(segment(slot), offset(slot));
+        synchronized (lock(id)) {
+            Integer current = index.get(id);
+            if (current != null && current == slot
+                    && GameRecord.lastAccessMillis(segment(slot), offset(slot)) < accessedBefore) {
+                release(id, slot);
+                evictions.increment();
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void flush() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        header.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    private void release(UUID id, int slot) {
+        GameRecord.setState(segment(slot), offset(slot), GameRecord.DELETED);
+        index.remove(id);
+        synchronized (this) {
+            pushFree(slot);
+        }
+    }
+
+    // -1 if the file is full
+    private synchronized int allocate() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (highWater == capacity) return -1;
+        header.putInt(HEADER_HIGH_WATER, highWater + 1);
+        return highWater++;
+    }
+
+    private void pushFree(int slot) {
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, 2 * freeCount);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    private Object lock(UUID id) {
+        return locks[(id.hashCode() & 0x7FFFFFFF) % LOCK_STRIPES];
+    }
+
+    private ByteBuffer segment(int slot) {
+        return segments[slot / RECORDS_PER_SEGMENT];
+    }
+
+    private int offset(int slot) {
+        return (slot % RECORDS_PER_SEGMENT) * GameRecord.SIZE;
+    }
+}
@@ -0,0 +1,471 @@
+package spw4.game2048.store;
+
+import spw4.game2048.Bitboard;
+import spw4.game2048.Direction;
+import spw4.game2048.Game;
+import spw4.game2048.SplitMixSpawner;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log of new games and accepted moves.
+ * <p>
+ * Appending a record returns its sequence number at once; callers {@link #await} it before they
+ * acknowledge the change, after releasing any locks, so a slow fsync never holds up other requests.
+ * A background thread writes and fsyncs all records that arrived since the last sync in one go, so
+ * concurrent requests share one fsync.
+ * <p>
+ * The file starts with a {@value #HEADER_SIZE} byte header, magic and version, followed by records
+ * of a fixed size of {@value #RECORD_SIZE} bytes:
+ * <pre>
+ *  0  type (1 = game, 2 = move)   byte
+ *  1  direction ordinal           byte
+ *  2  spawn: cell << 4 | exponent byte, exponent 0 if nothing spawned
+ *  4  CRC32 of bytes 0-3, 8-55    int
+ *  8  id                          two longs
+ * 24  packed board                long, game records only
+ * 32  score                       int, game records only
+ * 36  moves                       int, game records only
+ * 40  tile spawner state          long, after the record's spawn
+ * 48  time appended, epoch millis long
+ * </pre>
+ * A move record only stores the direction, the spawned tile and the spawner state, the rest is
+ * re-derived on replay. Recovered games continue with exactly the tiles they would have got.
+ * Games must use a spawner whose state can be read, see {@link spw4.game2048.TileSpawner#hasState()}.
+ * Journals of version 1 had no header and 48 byte records without the time; they are still recovered.
+ * <p>
+ * Games the store has dropped are not journaled. Instead, recovery and compaction keep only games
+ * whose last record is younger than the TTL, and of those at most the store's capacity of the most
+ * recent ones. A background thread compacts the journal into one game record per kept game whenever it has
+ * grown by {@value #COMPACT_RECORDS} records per game since the last compaction. Appending only stops
+ * for the final swap of the files.
+ */
+public class MoveJournal implements Closeable {
+
+    public static final int RECORD_SIZE = 56;
+    static final int HEADER_SIZE = 8;
+    static final int V1_RECORD_SIZE = 48;
+    private static final int MAGIC = 0x324A524E;
+    private static final int VERSION = 2;
+    private static final byte GAME = 1;
+    private static final byte MOVE = 2;
+    private static final int BUFFER_SIZE = RECORD_SIZE * 16 * 1024;
+    private static final int COMPACT_RECORDS = 4;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final Path file;
+    private final int maxGames;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final long compactBytes;
+    private final Thread writer;
+    private final Thread compactor;
+    private final CRC32 crc = new CRC32();
+    private FileChannel channel;
+    private ByteBuffer pending = ByteBuffer.allocate(BUFFER_SIZE);
+    private ByteBuffer writing = ByteBuffer.allocate(BUFFER_SIZE);
+    private long appended;
+    private long durable;
+    // bytes in the file, and right after the last compaction
+    private long written;
+    private long compacted;
+    private boolean compacting;
+    // appends wait while a compaction swaps the files
+    private boolean paused;
+    private IOException failure;
+    private boolean closed;
+
+    // a journal that is never compacted
+    public MoveJournal(Path file) throws IOException {
+        this(file, Integer.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    public MoveJournal(Path file, int maxGames, long ttlMillis) throws IOException {
+        this(file, maxGames, ttlMillis, System::currentTimeMillis);
+    }
+
+    public MoveJournal(Path file, int maxGames, long ttlMillis, LongSupplier clock) throws IOException {
+        if (maxGames < 1 || ttlMillis < 1) throw new IllegalArgumentException();
+        this.file = file;
+        this.maxGames = maxGames;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        compactBytes = (long) COMPACT_RECORDS * maxGames * RECORD_SIZE;
+        channel = open(file);
+        written = compacted = channel.size();
+        writer = new Thread(this::writeLoop, "move-journal");
+        writer.setDaemon(true);
+        writer.start();
+        compactor = new Thread(this::compactLoop, "move-journal-compactor");
+        compactor.setDaemon(true);
+        compactor.start();
+    }
+
+    // opens the journal for appending, writing the header of a new one
+    private static FileChannel open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (channel.size() == 0) {
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+        } else if (!readFully(channel, header, 0) || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            channel.close();
+            throw new IOException("not a move journal of version " + VERSION + ", recover it first: " + file);
+        }
+        channel.position(channel.size());
+        return channel;
+    }
+
+    // the sequence number to await
+    public long logGame(UUID id, Game game) {
+        checkJournalable(game);
+        return append(GAME, 0, 0, id, game.getBoard(), game.getScore(), game.getMoves(), game.getSpawner().getState());
+    }
+
+    // before is the packed board before a successful Game.move, game the state after it;
+    // the sequence number to await
+    public long logMove(UUID id, Direction direction, long before, Game game) {
+        checkJournalable(game);
+        long after = game.getBoard();
+        long spawned = after ^ Bitboard.move(before, direction);
+        int spawn = 0;
+        if (spawned != 0) {
+            int shift = Long.numberOfTrailingZeros(spawned) & ~3;
+            spawn = (shift / 4) << 4 | (int) (after >>> shift) & 0xF;
+        }
+        return append(MOVE, direction.ordinal(), spawn, id, 0, 0, 0, game.getSpawner().getState());
+    }
+
+    private static void checkJournalable(Game game) {
+        if (!game.isStandard()) throw new IllegalArgumentException("only standard 4x4 games can be journaled");
+        if (!game.getSpawner().hasState()) throw new IllegalArgumentException("the game's spawner state cannot be journaled");
+    }
+
+    // blocks until the record with this sequence number and all before it are on disk
+    public synchronized void await(long sequence) {
+        while (durable < sequence && failure == null) {
+            awaitWriter();
+        }
+        if (durable < sequence) throw new UncheckedIOException(failure);
+    }
+
+    private synchronized long append(byte type, int direction, int spawn, UUID id, long board, int score, int moves,
+                                     long spawner) {
+        while ((pending.remaining() < RECORD_SIZE || paused) && failure == null && !closed) {
+            awaitWriter();
+        }
+        checkOpen();
+        encode(pending, crc, type, direction, spawn, id, board, score, moves, spawner, clock.getAsLong());
+        notifyAll();
+        return ++appended;
+    }
+
+    private void writeLoop() {
+        while (true) {
+            long sequence;
+            FileChannel out;
+            synchronized (this) {
+                while (pending.position() == 0 && !closed) {
+                    awaitWriter();
+                }
+                if (pending.position() == 0) return;
+                ByteBuffer full = pending;
+                pending = writing;
+                writing = full;
+                sequence = appended;
+                out = channel;
+            }
+            int bytes = writing.position();
+            try {
+                writing.flip();
+                while (writing.hasRemaining()) {
+                    out.write(writing);
+                }
+                writing.clear();
+                out.force(false);
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+                return;
+            }
+            synchronized (this) {
+                durable = sequence;
+                written += bytes;
+                notifyAll();
+            }
+        }
+    }
+
+    private void compactLoop() {
+        while (true) {
+            synchronized (this) {
+                while (written - compacted < compactBytes && !closed && failure == null) {
+                    awaitWriter();
+                }
+                if (closed || failure != null) return;
+            }
+            try {
+                compact();
+            } catch (IOException | RuntimeException e) {
+                // retried once the journal has grown by another compaction threshold
+                synchronized (this) {
+                    compacted = written;
+                }
+            }
+        }
+    }
+
+    /**
+     * Rewrites the journal as one game record per game that recovery would keep, followed by the records
+     * appended meanwhile. The records on disk are folded without blocking appends; appends only wait
+     * while the records since then are copied over and the new file replaces the old one.
+     */
+    public void compact() throws IOException {
+        long folded;
+        synchronized (this) {
+            checkOpen();
+            if (compacting) return;
+            compacting = true;
+            // written only moves with durable, so it ends after the last whole record on disk
+            folded = written;
+        }
+        Path checkpoint = file.resolveSibling(file.getFileName() + ".checkpoint");
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            Map<UUID, long[]> games = new HashMap<>();
+            in.position(HEADER_SIZE);
+            fold(in, folded, RECORD_SIZE, 0, games);
+            List<Map.Entry<UUID, long[]>> kept = select(games, maxGames, ttlMillis, clock.getAsLong());
+
+            try (FileChannel out = FileChannel.open(checkpoint, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeHeader(out);
+                for (Map.Entry<UUID, long[]> entry : kept) {
+                    writeGame(out, entry.getKey(), entry.getValue());
+                }
+                synchronized (this) {
+                    paused = true;
+                    try {
+                        while (durable < appended && failure == null) {
+                            awaitWriter();
+                        }
+                        checkOpen();
+                        long position = folded;
+                        while (position < written) {
+                            position += in.transferTo(position, written - position, out);
+                        }
+                        out.force(true);
+                        Files.move(checkpoint, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                        channel.close();
+                        channel = open(file);
+                        written = compacted = channel.size();
+                    } finally {
+                        paused = false;
+                        notifyAll();
+                    }
+                }
+            }
+        } finally {
+            Files.deleteIfExists(checkpoint);
+            synchronized (this) {
+                compacting = false;
+            }
+        }
+    }
+
+    private void awaitWriter() {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for the move journal", e);
+        }
+    }
+
+    private void checkOpen() {
+        if (failure != null) throw new UncheckedIOException(failure);
+        if (closed) throw new IllegalStateException("move journal is closed");
+    }
+
+    private static void encode(ByteBuffer buffer, CRC32 crc, byte type, int direction, int spawn,
+                               UUID id, long board, int score, int moves, long spawner, long time) {
+        int start = buffer.position();
+        buffer.put(type).put((byte) direction).put((byte) spawn).put((byte) 0).putInt(0)
+                .putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits())
+                .putLong(board).putInt(score).putInt(moves).putLong(spawner).putLong(time);
+        buffer.putInt(start + 4, checksum(buffer, start, RECORD_SIZE, crc));
+    }
+
+    private static int checksum(ByteBuffer buffer, int start, int recordSize, CRC32 crc) {
+        crc.reset();
+        crc.update(buffer.array(), start, 4);
+        crc.update(buffer.array(), start + 8, recordSize - 8);
+        return (int) crc.getValue();
+    }
+
+    // waits until everything appended so far is on disk
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+            compactor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            channel.close();
+        }
+        if (failure != null) throw failure;
+    }
+
+    // recovers all games of the journal, see below
+    public static int recover(Path file, GameStore store) throws IOException {
+        return recover(file, store, Integer.MAX_VALUE, Long.MAX_VALUE, System.currentTimeMillis());
+    }
+
+    /**
+     * Replays a journal into the store and rewrites it as one game record per recovered game.
+     * Games whose last record is older than the TTL are skipped, and the most recent maxGames of the
+     * others are put into the store, oldest first, so a store that holds fewer evicts the oldest ones.
+     * Only the games the store kept are rewritten and counted. Replay stops at the first torn or corrupt
+     * record. Returns the number of recovered games.
+     */
+    public static int recover(Path file, GameStore store, int maxGames, long ttlMillis, long now) throws IOException {
+        if (!Files.exists(file)) return 0;
+
+        Map<UUID, long[]> games = new HashMap<>();
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            if (readFully(in, header, 0) && header.getInt(0) == MAGIC) {
+                if (header.getInt(4) != VERSION) throw new IOException("unknown move journal version: " + file);
+                in.position(HEADER_SIZE);
+                fold(in, in.size(), RECORD_SIZE, 0, games);
+            } else {
+                // version 1 records carry no time, so all their games count as just accessed
+                in.position(0);
+                fold(in, in.size(), V1_RECORD_SIZE, now, games);
+            }
+        }
+
+        int recovered = 0;
+        Path checkpoint = file.resolveSibling(file.getFileName() + ".checkpoint");
+        try (FileChannel out = FileChannel.open(checkpoint, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeHeader(out);
+            List<Map.Entry<UUID, long[]>> kept = select(games, maxGames, ttlMillis, now);
+            for (int i = kept.size() - 1; i >= 0; i--) {
+                long[] game = kept.get(i).getValue();
+                store.put(kept.get(i).getKey(), new Game(game[0], (int) game[1], (int) game[2], new SplitMixSpawner(game[3])));
+            }
+            for (int i = kept.size() - 1; i >= 0; i--) {
+                UUID id = kept.get(i).getKey();
+                // evicted for a more recent game
+                if (store.withGame(id, game -> Boolean.TRUE) == null) continue;
+                writeGame(out, id, kept.get(i).getValue());
+                recovered++;
+            }
+            out.force(true);
+        }
+        Files.move(checkpoint, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return recovered;
+    }
+
+    // replays the records up to limit into games, each board, score, moves, spawner state and time of its last
+    // record; records of version 1 get the given time. Stops at the first torn or corrupt record.
+    private static void fold(FileChannel in, long limit, int recordSize, long time, Map<UUID, long[]> games)
+            throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer record = ByteBuffer.allocate(recordSize);
+        for (long position = in.position(); position + recordSize <= limit; position += recordSize) {
+            if (!readFully(in, record, position)) break;
+            if (record.getInt(4) != checksum(record, 0, recordSize, crc)) break;
+
+            UUID id = new UUID(record.getLong(8), record.getLong(16));
+            long recorded = recordSize == RECORD_SIZE ? record.getLong(48) : time;
+            if (record.get(0) == GAME) {
+                games.put(id, new long[]{record.getLong(24), record.getInt(32), record.getInt(36), record.getLong(40), recorded});
+            } else if (record.get(0) == MOVE) {
+                long[] game = games.get(id);
+                if (game != null) {
+                    replayMove(game, DIRECTIONS[record.get(1)], record.get(2) & 0xFF);
+                    game[3] = record.getLong(40);
+                    game[4] = recorded;
+                }
+            } else {
+                break;
+            }
+        }
+    }
+
+    // the games younger than the TTL, at most maxGames of them, most recent first
+    private static List<Map.Entry<UUID, long[]>> select(Map<UUID, long[]> games, int maxGames, long ttlMillis, long now) {
+        List<Map.Entry<UUID, long[]>> kept = new ArrayList<>();
+        for (Map.Entry<UUID, long[]> entry : games.entrySet()) {
+            if (now - entry.getValue()[4] <= ttlMillis) kept.add(entry);
+        }
+        kept.sort((a, b) -> Long.compare(b.getValue()[4], a.getValue()[4]));
+        return kept.size() > maxGames ? kept.subList(0, maxGames) : kept;
+    }
+
+    private static void writeHeader(FileChannel out) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        while (header.hasRemaining()) {
+            out.write(header);
+        }
+    }
+
+    // game holds board, score, moves, spawner state and time
+    private static void writeGame(FileChannel out, UUID id, long[] game) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        encode(record, new CRC32(), GAME, 0, 0, id, game[0], (int) game[1], (int) game[2], game[3], game[4]);
+        record.flip();
+        while (record.hasRemaining()) {
+            out.write(record);
+        }
+    }
+
+    // game holds board, score, moves and spawner state
+    private static void replayMove(long[] game, Direction direction, int spawn) {
+        long board = game[0];
+        game[1] += Bitboard.score(board, direction);
+        board = Bitboard.move(board, direction);
+        if ((spawn & 0xF) != 0) {
+            int cell = spawn >>> 4;
+            board = Bitboard.setExponent(board, cell / Bitboard.SIZE, cell % Bitboard.SIZE, spawn & 0xF);
+        }
+        game[0] = board;
+        game[2]++;
+    }
+
+    private static boolean readFully(FileChannel in, ByteBuffer record, long position) throws IOException {
+        record.clear();
+        while (record.hasRemaining()) {
+            if (in.read(record, position + record.position()) < 0) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,258 @@
+package spw4.game2048.store;
+
+import spw4.game2048.Game;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Store that keeps every game as a {@link GameRecord} in direct memory, outside of the Java heap.
+ * <p>
+ * Records form one linear-probing hash table keyed by game id, split over several direct buffers.
+ * Deleting a record shifts the records after it back instead of leaving a tombstone, so probe
+ * sequences stay as short as the load factor allows however many games come and go. Reads and in-place updates run concurrently under the shared lock plus a per-id stripe lock;
+ * inserting and deleting records takes the exclusive lock. Games idle for longer than the TTL are
+ * removed by {@link #evictExpired()}. When the table is full, a new game evicts the least recently
+ * accessed of a sample of {@value #EVICTION_SAMPLE} games taken by a clock hand, plus any expired game
+ * in the sample, so a full store costs a bounded amount of work per insert instead of a full scan.
+ */
+public class OffHeapGameStore implements GameStore {
+
+    private static final int RECORDS_PER_SEGMENT = 1 << 20;
+    private static final int LOCK_STRIPES = 1024;
+    private static final int EVICTION_SAMPLE = 16;
+
+    private final ByteBuffer[] segments;
+    private final int slots;
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final ReadWriteLock tableLock = new ReentrantReadWriteLock();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final AtomicInteger size = new AtomicInteger();
+    private final LongAdder evictions = new LongAdder();
+    // next slot to sample for eviction, guarded by the exclusive lock
+    private int hand;
+
+    public OffHeapGameStore(int maxSize, long ttlMillis) {
+        this(maxSize, ttlMillis, System::currentTimeMillis);
+    }
+
+    public OffHeapGameStore(int maxSize, long ttlMillis, LongSupplier clock) {
+        if (maxSize < 1 || maxSize > 1 << 29 || ttlMillis < 1) throw new IllegalArgumentException();
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        // keep the load factor at or below 3/4
+        slots = Integer.highestOneBit(maxSize + maxSize / 3) << 1;
+        int perSegment = Math.min(slots, RECORDS_PER_SEGMENT);
+        segments = new ByteBuffer[slots / perSegment];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = ByteBuffer.allocateDirect(perSegment * GameRecord.SIZE);
+        }
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public void put(UUID id, Game game) {
+        GameRecord.checkStorable(game);
+        int now = GameRecord.seconds(clock.getAsLong());
+        tableLock.writeLock().lock();
+        try {
+            int slot = find(id);
+            if (slot >= 0) {
+                GameRecord.writeGame(segment(slot), offset(slot), game, now);
+                return;
+            }
+            if (size.get() >= maxSize) {
+                evictSampleLocked();
+            }
+            slot = freeSlot(id);
+            GameRecord.write(segment(slot), offset(slot), id, game, now);
+            size.incrementAndGet();
+        } finally {
+            tableLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public <T> T withGame(UUID id, Function<Game, T> action) {
+        long now = clock.getAsLong();
+        tableLock.readLock().lock();
+        try {
+            synchronized (lock(id)) {
+                int slot = find(id);
+                if (slot < 0) return null;
+                ByteBuffer segment = segment(slot);
+                int offset = offset(slot);
+                if (now - GameRecord.lastAccessMillis(segment, offset) > ttlMillis) return null;
+
+                Game game = GameRecord.readGame(segment, offset);
+                T result = action.apply(game);
+                GameRecord.writeGame(segment, offset, game, GameRecord.seconds(now));
+                return result;
+            }
+        } finally {
+            tableLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(UUID id) {
+        tableLock.writeLock().lock();
+        try {
+            int slot = find(id);
+            if (slot < 0) return false;
+            delete(slot);
+            size.decrementAndGet();
+            return true;
+        } finally {
+            tableLock.writeLock().unlock();
+        }
+    }
+
+    public void evictExpired() {
+        tableLock.writeLock().lock();
+        try {
+            evictExpiredLocked();
+        } finally {
+            tableLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getOffHeapBytes() {
+        return (long) slots * GameRecord.SIZE;
+    }
+
+    private void evictExpiredLocked() {
+        long now = clock.getAsLong();
+        for (int slot = 0; slot < slots; slot++) {
+            ByteBuffer segment = segment(slot);
+            int offset = offset(slot);
+            if (GameRecord.state(segment, offset) == GameRecord.USED
+                    && now - GameRecord.lastAccessMillis(segment, offset) > ttlMillis) {
+                evict(slot);
+            }
+        }
+    }
+
+    private void evictSampleLocked() {
+        long now = clock.getAsLong();
+        int victim = -1;
+        long oldest = Long.MAX_VALUE;
+        int sampled = 0;
+        for (int probe = 0; probe < slots && sampled < EVICTION_SAMPLE; probe++) {
+            int slot = hand;
+            hand = (hand + 1) & (slots - 1);
+            ByteBuffer segment = segment(slot);
+            int offset = offset(slot);
+            if (GameRecord.state(segment, offset) != GameRecord.USED) continue;
+            sampled++;
+            long access = GameRecord.lastAccessMillis(segment, offset);
+            if (now - access > ttlMillis) {
+                evict(slot);
+            } else if (access < oldest) {
+                oldest = access;
+                victim = slot;
+            }
+        }
+        if (size.get() >= maxSize && victim >= 0) {
+            evict(victim);
+        }
+    }
+
+    private void evict(int slot) {
+        delete(slot);
+        size.decrementAndGet();
+        evictions.increment();
+    }
+
+    // moves every later record of the cluster whose home is not between the hole and itself into the hole
+    private void delete(int slot) {
+        int hole = slot;
+        for (int next = (hole + 1) & (slots - 1); ; next = (next + 1) & (slots - 1)) {
+            ByteBuffer segment = segment(next);
+            int offset = offset(next);
+            if (GameRecord.state(segment, offset) == GameRecord.FREE) break;
+            int home = home(GameRecord.readId(segment, offset));
+            if (((next - home) & (slots - 1)) >= ((next - hole) & (slots - 1))) {
+                GameRecord.copy(segment, offset, segment(hole), offset(hole));
+                hole = next;
+            }
+        }
+        GameRecord.setState(segment(hole), offset(hole), GameRecord.FREE);
+    }
+
+    // length of the longest run of occupied slots, which bounds every probe sequence
+    int longestCluster() {
+        int longest = 0;
+        int run = 0;
+        // twice around, so a run that wraps past the last slot is counted whole
+        for (int i = 0; i < 2 * slots; i++) {
+            int slot = i & (slots - 1);
+            run = GameRecord.state(segment(slot), offset(slot)) == GameRecord.FREE ? 0 : run + 1;
+            longest = Math.max(longest, Math.min(run, slots));
+        }
+        return longest;
+    }
+
+    // slot holding the id, or -1
+    private int find(UUID id) {
+        int slot = home(id);
+        for (int probe = 0; probe < slots; probe++) {
+            ByteBuffer segment = segment(slot);
+            int offset = offset(slot);
+            int state = GameRecord.state(segment, offset);
+            if (state == GameRecord.FREE) return -1;
+            if (GameRecord.hasId(segment, offset, id)) return slot;
+            slot = (slot + 1) & (slots - 1);
+        }
+        return -1;
+    }
+
+    // first free slot on the probe sequence of an id that is not stored yet
+    private int freeSlot(UUID id) {
+        int slot = home(id);
+        while (GameRecord.state(segment(slot), offset(slot)) != GameRecord.FREE) {
+            slot = (slot + 1) & (slots - 1);
+        }
+        return slot;
+    }
+
+    private int home(UUID id) {
+        long hash = id.getMostSignificantBits() ^ id.getLeastSignificantBits();
+        hash ^= hash >>> 32;
+        hash *= 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & (slots - 1);
+    }
+
+    private Object lock(UUID id) {
+        return locks[home(id) & (LOCK_STRIPES - 1)];
+    }
+
+    private ByteBuffer segment(int slot) {
+        return segments[slot / (slots / segments.length)];
+    }
+
+    private int offset(int slot) {
+        return (slot % (slots / segments.length)) * GameRecord.SIZE;
+    }
+}
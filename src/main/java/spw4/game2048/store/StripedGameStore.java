@@ -0,0 +1,146 @@
+package spw4.game2048.store;
+
+import spw4.game2048.Game;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory store split into independently locked stripes, each an access-ordered LRU map.
+ * Games idle for longer than the TTL are dropped, and when a stripe exceeds its share of the
+ * maximum size its least recently used game is evicted.
+ */
+public class StripedGameStore implements GameStore {
+
+    public static final int DEFAULT_STRIPES = 64;
+
+    private final Stripe[] stripes;
+    private final int stripeCapacity;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final AtomicInteger size = new AtomicInteger();
+    private final LongAdder evictions = new LongAdder();
+
+    public StripedGameStore(int maxSize, long ttlMillis) {
+        this(maxSize, ttlMillis, DEFAULT_STRIPES, System::currentTimeMillis);
+    }
+
+    public StripedGameStore(int maxSize, long ttlMillis, int stripes, LongSupplier clock) {
+        if (maxSize < 1 || ttlMillis < 1 || stripes < 1) throw new IllegalArgumentException();
+        this.stripes = new Stripe[Integer.highestOneBit(Math.min(stripes, maxSize))];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.stripeCapacity = (maxSize + this.stripes.length - 1) / this.stripes.length;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    @Override
+    public void put(UUID id, Game game) {
+        long now = clock.getAsLong();
+        Stripe stripe = stripe(id);
+        synchronized (stripe) {
+            if (stripe.games.put(id, new Entry(game, now)) == null) {
+                size.incrementAndGet();
+            }
+            stripe.evictExpired(now);
+            Iterator<Entry> eldest = stripe.games.values().iterator();
+            while (stripe.games.size() > stripeCapacity) {
+                eldest.next();
+                eldest.remove();
+                evicted();
+            }
+        }
+    }
+
+    @Override
+    public <T> T withGame(UUID id, Function<Game, T> action) {
+        long now = clock.getAsLong();
+        Stripe stripe = stripe(id);
+        Entry entry;
+        synchronized (stripe) {
+            entry = stripe.games.get(id);
+            if (entry == null) return null;
+            if (now - entry.lastAccess > ttlMillis) {
+                stripe.games.remove(id);
+                evicted();
+                return null;
+            }
+            entry.lastAccess = now;
+        }
+        synchronized (entry) {
+            return action.apply(entry.game);
+        }
+    }
+
+    @Override
+    public boolean remove(UUID id) {
+        Stripe stripe = stripe(id);
+        synchronized (stripe) {
+            if (stripe.games.remove(id) == null) return false;
+        }
+        size.decrementAndGet();
+        return true;
+    }
+
+    // drops all idle games; expired games are otherwise only noticed when their stripe is touched
+    public void evictExpired() {
+        long now = clock.getAsLong();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.evictExpired(now);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private Stripe stripe(UUID id) {
+        int hash = id.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    private void evicted() {
+        size.decrementAndGet();
+        evictions.increment();
+    }
+
+    private static class Entry {
+        final Game game;
+        long lastAccess;
+
+        Entry(Game game, long lastAccess) {
+            this.game = game;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private class Stripe {
+        final LinkedHashMap<UUID, Entry> games = new LinkedHashMap<>(16, 0.75f, true);
+
+        // least recently used games come first, so only the head of the map needs checking
+        void evictExpired(long now) {
+            Iterator<Map.Entry<UUID, Entry>> it = games.entrySet().iterator();
+            while (it.hasNext()) {
+                if (now - it.next().getValue().lastAccess <= ttlMillis) break;
+                it.remove();
+                evicted();
+            }
+        }
+    }
+}
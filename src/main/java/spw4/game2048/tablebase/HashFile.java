@@ -0,0 +1,156 @@
+package spw4.game2048.tablebase;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Memory-mapped open-addressing hash table from non-zero position keys to float values, used both
+ * for the levels of the generator and for the finished tablebase.
+ * <p>
+ * Layout: a 64-byte header, then {@code capacity} 8-byte keys (0 marks a free slot), then
+ * {@code capacity} 4-byte values. Keys are claimed with compare-and-set and linear probing, so
+ * many threads can insert at once; the capacity is fixed, growing is up to the caller.
+ */
+final class HashFile implements Closeable {
+    private static final int MAGIC = 0x32304842;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_BOARD_SIZE = 8;
+    private static final int HEADER_TARGET = 12;
+    private static final int HEADER_CAPACITY = 16;
+    private static final int HEADER_COUNT = 24;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final MappedArray keys;
+    private final MappedArray values;
+    private final boolean writable;
+    private final long capacity;
+    private final long mask;
+    private final LongAdder count = new LongAdder();
+
+    private HashFile(FileChannel channel, boolean writable) throws IOException {
+        this.channel = channel;
+        this.writable = writable;
+        FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+        header = channel.map(mode, 0, HEADER_SIZE);
+        capacity = header.getLong(HEADER_CAPACITY);
+        mask = capacity - 1;
+        keys = new MappedArray(channel, mode, HEADER_SIZE, capacity * 8);
+        values = new MappedArray(channel, mode, HEADER_SIZE + capacity * 8, capacity * 4);
+        count.add(header.getLong(HEADER_COUNT));
+    }
+
+    // capacity must be a power of two
+    static HashFile create(Path file, int boardSize, int target, long capacity) throws IOException {
+        if (capacity < 1 || (capacity & capacity - 1) != 0) throw new IllegalArgumentException();
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        header.putInt(HEADER_MAGIC, MAGIC);
+        header.putInt(HEADER_VERSION, VERSION);
+        header.putInt(HEADER_BOARD_SIZE, boardSize);
+        header.putInt(HEADER_TARGET, target);
+        header.putLong(HEADER_CAPACITY, capacity);
+        header.putLong(HEADER_COUNT, 0);
+        return new HashFile(channel, true);
+    }
+
+    static HashFile open(Path file, boolean writable) throws IOException {
+        FileChannel channel = writable
+                ? FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(file, StandardOpenOption.READ);
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        if (header.getInt(HEADER_MAGIC) != MAGIC || header.getInt(HEADER_VERSION) != VERSION) {
+            channel.close();
+            throw new IOException("not a tablebase: " + file);
+        }
+        return new HashFile(channel, writable);
+    }
+
+    // the slot of the key if this call inserted it, otherwise -1 - the slot it already had
+    long insert(long key) {
+        long slot = mix(key) & mask;
+        for (long probes = 0; probes < capacity; probes++) {
+            long offset = slot * 8;
+            long current = keys.getLong(offset);
+            if (current == 0) {
+                if (keys.compareAndSetLong(offset, 0, key)) {
+                    count.increment();
+                    return slot;
+                }
+                current = keys.getLong(offset);
+            }
+            if (current == key) return -1 - slot;
+            slot = slot + 1 & mask;
+        }
+        throw new IllegalStateException("hash file is full");
+    }
+
+    // the slot of the key, or -1
+    long find(long key) {
+        long slot = mix(key) & mask;
+        for (long probes = 0; probes < capacity; probes++) {
+            long current = keys.getLong(slot * 8);
+            if (current == key) return slot;
+            if (current == 0) return -1;
+            slot = slot + 1 & mask;
+        }
+        return -1;
+    }
+
+    // 0 for a free slot
+    long key(long slot) {
+        return keys.getLong(slot * 8);
+    }
+
+    float value(long slot) {
+        return values.getFloat(slot * 4);
+    }
+
+    void setValue(long slot, float value) {
+        values.putFloat(slot * 4, value);
+    }
+
+    long capacity() {
+        return capacity;
+    }
+
+    long count() {
+        return count.sum();
+    }
+
+    int boardSize() {
+        return header.getInt(HEADER_BOARD_SIZE);
+    }
+
+    int target() {
+        return header.getInt(HEADER_TARGET);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (writable) {
+            header.putLong(HEADER_COUNT, count.sum());
+            keys.force();
+            values.force();
+            header.force();
+        }
+        channel.close();
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        return key ^ key >>> 33;
+    }
+}
@@ -0,0 +1,91 @@
+package spw4.game2048.tablebase;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The positions of one level (one tile sum) while it is being enumerated: a {@link HashFile} that
+ * doubles into a new file when it is half full. Threads insert batches under the read lock, so
+ * they only wait for each other while the table grows.
+ * <p>
+ * The fill level is checked every {@value #CHECK_INTERVAL} keys, so each thread inserts at most that many
+ * keys past the half-full mark before it grows the table. The free half therefore has room for
+ * {@link #MAX_THREADS} threads even at the initial capacity.
+ */
+final class LevelSet {
+    static final long INITIAL_CAPACITY = 1 << 16;
+    static final int CHECK_INTERVAL = 1 << 6;
+    static final int MAX_THREADS = (int) (INITIAL_CAPACITY / 2 / CHECK_INTERVAL);
+
+    private final Path directory;
+    private final String name;
+    private final int boardSize;
+    private final int target;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private HashFile table;
+    private Path file;
+    private int generation;
+
+    LevelSet(Path directory, String name, int boardSize, int target) throws IOException {
+        this.directory = directory;
+        this.name = name;
+        this.boardSize = boardSize;
+        this.target = target;
+        file = directory.resolve(name + "." + generation);
+        table = HashFile.create(file, boardSize, target, INITIAL_CAPACITY);
+    }
+
+    void addAll(long[] keys, int length) {
+        int i = 0;
+        while (i < length) {
+            boolean full = false;
+            lock.readLock().lock();
+            try {
+                long limit = table.capacity() / 2;
+                while (i < length && !full) {
+                    for (int end = Math.min(length, i + CHECK_INTERVAL); i < end; i++) {
+                        table.insert(keys[i]);
+                    }
+                    full = table.count() > limit;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (full) grow();
+        }
+    }
+
+    private void grow() {
+        lock.writeLock().lock();
+        try {
+            if (table.count() <= table.capacity() / 2) return;
+            Path grownFile = directory.resolve(name + "." + ++generation);
+            HashFile grown = HashFile.create(grownFile, boardSize, target, table.capacity() * 2);
+            for (long slot = 0; slot < table.capacity(); slot++) {
+                long key = table.key(slot);
+                if (key != 0) grown.insert(key);
+            }
+            table.close();
+            Files.delete(file);
+            table = grown;
+            file = grownFile;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    long count() {
+        return table.count();
+    }
+
+    // closes the table; no more adds after this
+    Path finish() throws IOException {
+        table.close();
+        return file;
+    }
+}
@@ -0,0 +1,53 @@
+package spw4.game2048.tablebase;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A region of a file addressed by byte offset, mapped in 1 GiB pieces so that it can be larger than
+ * a single {@link MappedByteBuffer}. Longs at 8-byte aligned offsets can be compare-and-set, which
+ * works on mapped memory like on any direct buffer.
+ */
+final class MappedArray {
+    private static final int SEGMENT_SHIFT = 30;
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final MappedByteBuffer[] segments;
+
+    MappedArray(FileChannel channel, FileChannel.MapMode mode, long position, long bytes) throws IOException {
+        segments = new MappedByteBuffer[(int) ((bytes + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+        for (int i = 0; i < segments.length; i++) {
+            long offset = (long) i << SEGMENT_SHIFT;
+            segments[i] = channel.map(mode, position + offset, Math.min(1L << SEGMENT_SHIFT, bytes - offset));
+            segments[i].order(ByteOrder.nativeOrder());
+        }
+    }
+
+    long getLong(long offset) {
+        return (long) LONGS.getAcquire(segments[(int) (offset >>> SEGMENT_SHIFT)], (int) offset & SEGMENT_MASK);
+    }
+
+    boolean compareAndSetLong(long offset, long expected, long value) {
+        return LONGS.compareAndSet(segments[(int) (offset >>> SEGMENT_SHIFT)], (int) offset & SEGMENT_MASK,
+                expected, value);
+    }
+
+    float getFloat(long offset) {
+        return segments[(int) (offset >>> SEGMENT_SHIFT)].getFloat((int) offset & SEGMENT_MASK);
+    }
+
+    void putFloat(long offset, float value) {
+        segments[(int) (offset >>> SEGMENT_SHIFT)].putFloat((int) offset & SEGMENT_MASK, value);
+    }
+
+    void force() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+}
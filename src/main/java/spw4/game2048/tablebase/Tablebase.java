@@ -0,0 +1,165 @@
+package spw4.game2048.tablebase;
+
+import spw4.game2048.Bitboard;
+import spw4.game2048.Direction;
+import spw4.game2048.Game;
+import spw4.game2048.PackedRows;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.LongToDoubleFunction;
+
+/**
+ * Exact win probabilities of small boards, read from a file written by {@link TablebaseGenerator}.
+ * <p>
+ * A position is keyed by its cells as 4-bit exponents, cell {@code row * size + col} in nibble
+ * {@code row * size + col}, so boards up to 4x4 fit into a long. The value of a position is the
+ * probability of reaching the winning tile from it when every move is chosen to maximize that
+ * probability, to float precision. The file holds every position reachable from the positions it
+ * was generated from, except won ones, which are worth 1 without a lookup.
+ */
+public class Tablebase implements Closeable {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final HashFile table;
+    private final int size;
+    private final int targetExponent;
+    private final PackedRows packed;
+
+    private Tablebase(HashFile table) {
+        this.table = table;
+        this.size = table.boardSize();
+        this.targetExponent = Bitboard.toExponent(table.target());
+        this.packed = PackedRows.forSize(size);
+    }
+
+    public static Tablebase open(Path file) throws IOException {
+        return new Tablebase(HashFile.open(file, false));
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getWinningValue() {
+        return Bitboard.toValue(targetExponent);
+    }
+
+    public long getPositions() {
+        return table.count();
+    }
+
+    // NaN if the position is not in the table
+    public double winProbability(long key) {
+        if (isWon(key, targetExponent)) return 1;
+        long slot = table.find(key);
+        return slot < 0 ? Double.NaN : table.value(slot);
+    }
+
+    public double winProbability(Game game) {
+        return winProbability(key(game));
+    }
+
+    // probability of winning a new game, over the two tiles Game.initialize spawns
+    public double newGameWinProbability() {
+        int cells = size * size;
+        double total = 0;
+        for (int first = 0; first < cells; first++) {
+            for (int second = 0; second < cells; second++) {
+                if (first == second) continue;
+                for (int a = 1; a <= 2; a++) {
+                    for (int b = 1; b <= 2; b++) {
+                        double p = (a == 1 ? Game.PROBABILITY_OF_TWO : 1 - Game.PROBABILITY_OF_TWO)
+                                * (b == 1 ? Game.PROBABILITY_OF_TWO : 1 - Game.PROBABILITY_OF_TWO);
+                        total += p * winProbability((long) a << 4 * first | (long) b << 4 * second);
+                    }
+                }
+            }
+        }
+        return total / (cells * (cells - 1));
+    }
+
+    // the move with the highest win probability, null if the game is over or not in the table
+    public Direction bestMove(Game game) {
+        long key = key(game);
+        if (Double.isNaN(winProbability(key))) return null;
+        int[] rows = new int[size];
+        rows(key, size, rows);
+        int legal = packed.legalMoves(rows);
+        Direction best = null;
+        double bestValue = -1;
+        int[] moved = new int[size];
+        for (Direction direction : DIRECTIONS) {
+            if ((legal & 1 << direction.ordinal()) == 0) continue;
+            System.arraycopy(rows, 0, moved, 0, size);
+            packed.move(moved, direction);
+            double value = spawnValue(key(moved, size), size * size, this::winProbability, this::winProbability);
+            if (value > bestValue) {
+                bestValue = value;
+                best = direction;
+            }
+        }
+        return best;
+    }
+
+    public long key(Game game) {
+        if (game.getSize() != size) throw new IllegalArgumentException("tablebase is for " + size + "x" + size + " boards");
+        long key = 0;
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                key |= (long) Bitboard.toExponent(game.getValueAt(row, col)) << 4 * (row * size + col);
+            }
+        }
+        return key;
+    }
+
+    @Override
+    public void close() throws IOException {
+        table.close();
+    }
+
+    static long key(int[] rows, int size) {
+        long key = 0;
+        for (int row = 0; row < size; row++) {
+            key |= (long) rows[row] << 4 * size * row;
+        }
+        return key;
+    }
+
+    static void rows(long key, int size, int[] rows) {
+        int rowMask = (1 << 4 * size) - 1;
+        for (int row = 0; row < size; row++) {
+            rows[row] = (int) (key >>> 4 * size * row) & rowMask;
+        }
+    }
+
+    static boolean isWon(long key, int targetExponent) {
+        for (; key != 0; key >>>= 4) {
+            if ((key & 0xF) >= targetExponent) return true;
+        }
+        return false;
+    }
+
+    // sum of the tile values, which every spawn raises by 2 or 4 and moves keep
+    static int tileSum(long key) {
+        int sum = 0;
+        for (; key != 0; key >>>= 4) {
+            sum += Bitboard.toValue((int) (key & 0xF));
+        }
+        return sum;
+    }
+
+    // expected value after the spawn that follows a move to after: a uniform empty cell, 2 or 4
+    static double spawnValue(long after, int cells, LongToDoubleFunction twoValue, LongToDoubleFunction fourValue) {
+        double total = 0;
+        int empty = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            if ((after >>> 4 * cell & 0xF) != 0) continue;
+            empty++;
+            total += Game.PROBABILITY_OF_TWO * twoValue.applyAsDouble(after | 1L << 4 * cell)
+                    + (1 - Game.PROBABILITY_OF_TWO) * fourValue.applyAsDouble(after | 2L << 4 * cell);
+        }
+        return total / empty;
+    }
+}
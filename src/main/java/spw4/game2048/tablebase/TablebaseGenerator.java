@@ -0,0 +1,312 @@
+package spw4.game2048.tablebase;
+
+import spw4.game2048.Bitboard;
+import spw4.game2048.Direction;
+import spw4.game2048.PackedRows;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongToDoubleFunction;
+
+/**
+ * Offline generator of {@link Tablebase} files for boards up to 4x4.
+ * <p>
+ * Moves keep the sum of the tiles and every spawn raises it by 2 or 4, so positions fall into levels
+ * by tile sum and a level only leads to the next two. The forward pass enumerates the levels in
+ * increasing order, expanding each in parallel into the on-disk {@link LevelSet}s of the following
+ * levels with the move rules of {@link PackedRows}. The backward pass then computes exact values
+ * from the highest level down, each level reading the values of the two above it. Finally all levels
+ * are merged into one {@link HashFile}. Only a few levels are mapped at a time, and mapped files
+ * are paged by the operating system, so the state space may exceed the heap and RAM.
+ */
+public class TablebaseGenerator {
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int CHUNK = 1 << 12;
+    private static final int BATCH = 1 << 12;
+
+    private final int size;
+    private final int target;
+    private final int targetExponent;
+    private final int threads;
+    private final Path workDirectory;
+    private final PackedRows packed;
+
+    public TablebaseGenerator(int size, int target, int threads, Path workDirectory) {
+        if (size > 4 || threads < 1) throw new IllegalArgumentException();
+        if (threads > LevelSet.MAX_THREADS) throw new IllegalArgumentException("at most " + LevelSet.MAX_THREADS + " threads");
+        if (target <= 4) throw new IllegalArgumentException("target must be larger than a spawned tile");
+        this.size = size;
+        this.target = target;
+        this.targetExponent = Bitboard.toExponent(target);
+        this.threads = threads;
+        this.workDirectory = workDirectory;
+        this.packed = PackedRows.forSize(size);
+    }
+
+    // every position Game.initialize can produce
+    public long[] newGamePositions() {
+        int cells = size * size;
+        List<Long> positions = new ArrayList<>();
+        for (int first = 0; first < cells; first++) {
+            for (int second = first + 1; second < cells; second++) {
+                for (long a = 1; a <= 2; a++) {
+                    for (long b = 1; b <= 2; b++) {
+                        positions.add(a << 4 * first | b << 4 * second);
+                    }
+                }
+            }
+        }
+        return positions.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    public long generate(long[] starts, Path output) throws IOException {
+        return generate(starts, output, message -> { });
+    }
+
+    // writes the tablebase of all positions reachable from starts and returns the number of positions
+    public long generate(long[] starts, Path output, Consumer<String> progress) throws IOException {
+        Files.createDirectories(workDirectory);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Map<Integer, Path> levels = new TreeMap<>();
+        try {
+            TreeMap<Integer, LevelSet> pending = new TreeMap<>();
+            for (long start : starts) {
+                if (Tablebase.isWon(start, targetExponent)) continue;
+                int sum = Tablebase.tileSum(start);
+                if (!pending.containsKey(sum)) pending.put(sum, levelSet(sum));
+                pending.get(sum).addAll(new long[]{start}, 1);
+            }
+
+            long total = 0;
+            while (!pending.isEmpty()) {
+                Map.Entry<Integer, LevelSet> entry = pending.pollFirstEntry();
+                int sum = entry.getKey();
+                long count = entry.getValue().count();
+                Path file = entry.getValue().finish();
+                if (count == 0) {
+                    Files.delete(file);
+                    continue;
+                }
+                levels.put(sum, file);
+                total += count;
+                if (!pending.containsKey(sum + 2)) pending.put(sum + 2, levelSet(sum + 2));
+                if (!pending.containsKey(sum + 4)) pending.put(sum + 4, levelSet(sum + 4));
+                LevelSet two = pending.get(sum + 2);
+                LevelSet four = pending.get(sum + 4);
+                try (HashFile level = HashFile.open(file, false)) {
+                    parallel(executor, level.capacity(), (from, to) -> expand(level, from, to, two, four));
+                }
+                progress.accept("level " + sum + ": " + count + " positions");
+            }
+
+            List<Integer> sums = new ArrayList<>(levels.keySet());
+            for (int i = sums.size() - 1; i >= 0; i--) {
+                int sum = sums.get(i);
+                try (HashFile level = HashFile.open(levels.get(sum), true);
+                     HashFile two = open(levels.get(sum + 2));
+                     HashFile four = open(levels.get(sum + 4))) {
+                    parallel(executor, level.capacity(), (from, to) -> evaluate(level, from, to, two, four));
+                }
+                progress.accept("evaluated level " + sum);
+            }
+
+            Files.deleteIfExists(output);
+            long capacity = Long.highestOneBit(Math.max(8, total + total / 3)) * 2;
+            try (HashFile table = HashFile.create(output, size, target, capacity)) {
+                for (Path file : levels.values()) {
+                    try (HashFile level = HashFile.open(file, false)) {
+                        parallel(executor, level.capacity(), (from, to) -> copy(level, from, to, table));
+                    }
+                }
+            }
+            progress.accept("wrote " + total + " positions to " + output);
+            return total;
+        } finally {
+            executor.shutdownNow();
+            for (Path file : levels.values()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private LevelSet levelSet(int sum) throws IOException {
+        return new LevelSet(workDirectory, "level-" + sum, size, target);
+    }
+
+    private static HashFile open(Path file) throws IOException {
+        return file == null ? null : HashFile.open(file, false);
+    }
+
+    // adds every position one move and one spawn away from the level's positions in [from, to)
+    private void expand(HashFile level, long from, long to, LevelSet two, LevelSet four) {
+        int cells = size * size;
+        int[] rows = new int[size];
+        int[] moved = new int[size];
+        long[] twos = new long[BATCH];
+        long[] fours = new long[BATCH];
+        int twoCount = 0;
+        int fourCount = 0;
+        for (long slot = from; slot < to; slot++) {
+            long key = level.key(slot);
+            if (key == 0) continue;
+            Tablebase.rows(key, size, rows);
+            int legal = packed.legalMoves(rows);
+            for (Direction direction : DIRECTIONS) {
+                if ((legal & 1 << direction.ordinal()) == 0) continue;
+                System.arraycopy(rows, 0, moved, 0, size);
+                packed.move(moved, direction);
+                long after = Tablebase.key(moved, size);
+                for (int cell = 0; cell < cells; cell++) {
+                    if ((after >>> 4 * cell & 0xF) != 0) continue;
+                    long next = after | 1L << 4 * cell;
+                    if (!Tablebase.isWon(next, targetExponent)) {
+                        twos[twoCount++] = next;
+                        if (twoCount == BATCH) {
+                            two.addAll(twos, twoCount);
+                            twoCount = 0;
+                        }
+                    }
+                    next = after | 2L << 4 * cell;
+                    if (!Tablebase.isWon(next, targetExponent)) {
+                        fours[fourCount++] = next;
+                        if (fourCount == BATCH) {
+                            four.addAll(fours, fourCount);
+                            fourCount = 0;
+                        }
+                    }
+                }
+            }
+        }
+        two.addAll(twos, twoCount);
+        four.addAll(fours, fourCount);
+    }
+
+    // sets the value of the level's positions in [from, to) from the values of the two levels above
+    private void evaluate(HashFile level, long from, long to, HashFile two, HashFile four) {
+        int cells = size * size;
+        int[] rows = new int[size];
+        int[] moved = new int[size];
+        LongToDoubleFunction twoValue = key -> lookup(two, key);
+        LongToDoubleFunction fourValue = key -> lookup(four, key);
+        for (long slot = from; slot < to; slot++) {
+            long key = level.key(slot);
+            if (key == 0) continue;
+            Tablebase.rows(key, size, rows);
+            int legal = packed.legalMoves(rows);
+            double best = 0;
+            for (Direction direction : DIRECTIONS) {
+                if ((legal & 1 << direction.ordinal()) == 0) continue;
+                System.arraycopy(rows, 0, moved, 0, size);
+                packed.move(moved, direction);
+                best = Math.max(best, Tablebase.spawnValue(Tablebase.key(moved, size), cells, twoValue, fourValue));
+            }
+            level.setValue(slot, (float) best);
+        }
+    }
+
+    private double lookup(HashFile level, long key) {
+        if (Tablebase.isWon(key, targetExponent)) return 1;
+        long slot = level == null ? -1 : level.find(key);
+        if (slot < 0) throw new IllegalStateException("position " + Long.toHexString(key) + " was not enumerated");
+        return level.value(slot);
+    }
+
+    private static void copy(HashFile level, long from, long to, HashFile table) {
+        for (long slot = from; slot < to; slot++) {
+            long key = level.key(slot);
+            if (key == 0) continue;
+            table.setValue(table.insert(key), level.value(slot));
+        }
+    }
+
+    @FunctionalInterface
+    private interface SlotRange {
+        void run(long from, long to);
+    }
+
+    // runs task over [0, slots) in chunks on all threads
+    private void parallel(ExecutorService executor, long slots, SlotRange task) throws IOException {
+        AtomicLong next = new AtomicLong();
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            workers.add(executor.submit(() -> {
+                long from;
+                while ((from = next.getAndAdd(CHUNK)) < slots) {
+                    task.run(from, Math.min(slots, from + CHUNK));
+                }
+            }));
+        }
+        try {
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) throw ((UncheckedIOException) e.getCause()).getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int size = 3;
+        int target = 256;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path output = null;
+        Path work = null;
+        Long start = null;
+
+        for (String arg : args) {
+            String[] option = arg.split("=", 2);
+            if (option.length != 2) {
+                printUsage();
+                return;
+            }
+            switch (option[0]) {
+                case "--size": size = Integer.parseInt(option[1]); break;
+                case "--target": target = Integer.parseInt(option[1]); break;
+                case "--threads": threads = Integer.parseInt(option[1]); break;
+                case "--out": output = Paths.get(option[1]); break;
+                case "--work": work = Paths.get(option[1]); break;
+                case "--start": start = Long.parseUnsignedLong(option[1], 16); break;
+                default: printUsage(); return;
+            }
+        }
+        if (output == null) output = Paths.get("tablebase-" + size + "x" + size + "-" + target + ".bin");
+        if (work == null) work = Paths.get(output + ".work");
+
+        TablebaseGenerator generator = new TablebaseGenerator(size, target, threads, work);
+        long[] starts = start == null ? generator.newGamePositions() : new long[]{start};
+        long begin = System.nanoTime();
+        generator.generate(starts, output, System.out::println);
+        Files.deleteIfExists(work);
+        System.out.printf("done in %.1f s%n", (System.nanoTime() - begin) / 1e9);
+
+        try (Tablebase tablebase = Tablebase.open(output)) {
+            if (start == null) {
+                System.out.printf("win probability of a new game: %.6f%n", tablebase.newGameWinProbability());
+            } else {
+                System.out.printf("win probability of %x: %.6f%n", start, tablebase.winProbability(start));
+            }
+        }
+    }
+
+    private static void printUsage() {
+        System.out.println("usage: TablebaseGenerator [--size=3] [--target=256] [--threads=n] [--out=file] [--work=dir]"
+                + " [--start=hex position]");
+    }
+}
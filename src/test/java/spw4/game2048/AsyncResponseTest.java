@@ -0,0 +1,104 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import spw4.game2048.store.StripedGameStore;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class AsyncResponseTest {
+
+  @Mock
+  HttpServletResponse response;
+  @Mock
+  AsyncContext async;
+  AsyncResponse guarded;
+
+  @BeforeEach
+  void setUp() {
+    guarded = new AsyncResponse(response, new GameMetrics(new StripedGameStore(10, 60_000)));
+  }
+
+  @Test
+  void abandonedResponseIgnoresChangesAndFailsWrites() throws IOException {
+    assertTrue(guarded.start());
+    guarded.onTimeout(new AsyncEvent(async));
+    guarded.setStatus(500);
+    guarded.setHeader("ETag", "\"x\"");
+
+    assertAll(
+            () -> assertThrows(IOException.class, () -> guarded.getOutputStream()),
+            () -> assertThrows(IOException.class, () -> guarded.sendError(500)),
+            () -> assertTrue(guarded.isCommitted()),
+            () -> assertFalse(guarded.finish(), "the worker must not complete again")
+    );
+    verify(response, never()).setStatus(anyInt());
+    verify(response, never()).setHeader(any(), any());
+    verify(response, never()).sendError(anyInt());
+    verify(async).complete();
+  }
+
+  @Test
+  void finishedResponseIsNotAbandoned() throws IOException {
+    assertTrue(guarded.start());
+    assertTrue(guarded.finish());
+    guarded.onTimeout(new AsyncEvent(async));
+
+    verify(async, never()).complete();
+  }
+
+  @Test
+  void abandonWaitsForARunningWrite() throws Exception {
+    ServletOutputStream target = mock(ServletOutputStream.class);
+    when(response.getOutputStream()).thenReturn(target);
+    CountDownLatch writing = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      writing.countDown();
+      release.await();
+      return null;
+    }).when(target).write(any(byte[].class), anyInt(), anyInt());
+    assertTrue(guarded.start());
+    ServletOutputStream out = guarded.getOutputStream();
+
+    Thread worker = new Thread(() -> {
+      try {
+        out.write(new byte[8], 0, 8);
+      } catch (IOException e) {
+        throw new AssertionError(e);
+      }
+    });
+    worker.start();
+    assertTrue(writing.await(1, TimeUnit.SECONDS));
+    Thread timeout = new Thread(() -> {
+      try {
+        guarded.onTimeout(new AsyncEvent(async));
+      } catch (IOException e) {
+        throw new AssertionError(e);
+      }
+    });
+    timeout.start();
+
+    verify(async, after(200).never()).complete();
+    release.countDown();
+    worker.join(1000);
+    timeout.join(1000);
+    verify(async).complete();
+    assertThrows(IOException.class, () -> out.write(1));
+  }
+}
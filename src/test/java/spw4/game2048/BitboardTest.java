@@ -0,0 +1,128 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BitboardTest {
+
+  // builds a board from tile values given row by row
+  static long board(int... values) {
+    long board = 0;
+    for (int i = 0; i < values.length; i++) {
+      board = Bitboard.setExponent(board, i / 4, i % 4, Bitboard.toExponent(values[i]));
+    }
+    return board;
+  }
+
+  static int row(int... values) {
+    return Bitboard.getRow(board(values), 0);
+  }
+
+  @Nested
+  class CellTests {
+    @Test
+    void setAndGetExponent() {
+      long board = Bitboard.setExponent(0, 2, 3, 11);
+      assertEquals(11, Bitboard.getExponent(board, 2, 3));
+      assertEquals(0, Bitboard.getExponent(board, 3, 2));
+    }
+
+    @Test
+    void valueExponentConversion() {
+      assertAll(
+              () -> assertEquals(0, Bitboard.toExponent(0)),
+              () -> assertEquals(11, Bitboard.toExponent(2048)),
+              () -> assertEquals(2048, Bitboard.toValue(11)),
+              () -> assertEquals(0, Bitboard.toValue(0)),
+              () -> assertThrows(IllegalArgumentException.class, () -> Bitboard.toExponent(6)),
+              () -> assertThrows(IllegalArgumentException.class, () -> Bitboard.toExponent(65536))
+      );
+    }
+
+    @Test
+    void countEmpty() {
+      assertEquals(16, Bitboard.countEmpty(0));
+      assertEquals(13, Bitboard.countEmpty(board(2, 0, 0, 0, 0, 8, 0, 0, 0, 0, 0, 0, 0, 0, 0, 32768)));
+    }
+
+    @Test
+    void transposeSwapsRowsAndCols() {
+      long board = board(
+              2, 4, 8, 16,
+              32, 64, 128, 256,
+              512, 1024, 2048, 4096,
+              8192, 16384, 32768, 0);
+      long transposed = Bitboard.transpose(board);
+
+      for (int row = 0; row < 4; row++) {
+        for (int col = 0; col < 4; col++) {
+          assertEquals(Bitboard.getExponent(board, row, col), Bitboard.getExponent(transposed, col, row));
+        }
+      }
+      assertEquals(board, Bitboard.transpose(transposed));
+    }
+  }
+
+  @Nested
+  class RowTests {
+    @Test
+    void slideLeftCompactsAndMergesPairs() {
+      assertAll(
+              () -> assertEquals(row(4, 4, 0, 0), Bitboard.slideRowLeft(row(2, 2, 2, 2))),
+              () -> assertEquals(row(4, 2, 0, 0), Bitboard.slideRowLeft(row(2, 2, 2, 0))),
+              () -> assertEquals(row(2, 4, 0, 0), Bitboard.slideRowLeft(row(0, 2, 0, 4))),
+              () -> assertEquals(row(8, 4, 0, 0), Bitboard.slideRowLeft(row(4, 4, 0, 4)))
+      );
+    }
+
+    @Test
+    void slideRightMergesFromTheRight() {
+      assertEquals(row(0, 0, 2, 4), Bitboard.slideRowRight(row(2, 2, 2, 0)));
+    }
+
+    @Test
+    void rowScoreSumsMergedTiles() {
+      assertEquals(12, Bitboard.rowScore(row(2, 2, 4, 4)));
+      assertEquals(0, Bitboard.rowScore(row(2, 4, 2, 4)));
+    }
+
+    @Test
+    void lookupTablesMatchReferenceForEveryRow() {
+      for (int row = 0; row < 1 << 16; row++) {
+        long board = (long) row << 32;
+        assertEquals(Bitboard.slideRowLeft(row), Bitboard.getRow(Bitboard.move(board, Direction.left), 2));
+        assertEquals(Bitboard.slideRowRight(row), Bitboard.getRow(Bitboard.move(board, Direction.right), 2));
+        assertEquals(Bitboard.rowScore(row), Bitboard.score(board, Direction.left));
+      }
+    }
+
+    @Test
+    void maxTilesDoNotMerge() {
+      int row = row(32768, 32768, 0, 0);
+      assertEquals(row, Bitboard.slideRowLeft(row));
+    }
+  }
+
+  @Test
+  void moveUpAndDown() {
+    long board = board(
+            2, 0, 0, 0,
+            0, 0, 0, 0,
+            2, 0, 0, 4,
+            0, 0, 0, 4);
+
+    assertEquals(board(
+            4, 0, 0, 8,
+            0, 0, 0, 0,
+            0, 0, 0, 0,
+            0, 0, 0, 0), Bitboard.move(board, Direction.up));
+    assertEquals(board(
+            0, 0, 0, 0,
+            0, 0, 0, 0,
+            0, 0, 0, 0,
+            4, 0, 0, 8), Bitboard.move(board, Direction.down));
+    assertEquals(12, Bitboard.score(board, Direction.up));
+  }
+}
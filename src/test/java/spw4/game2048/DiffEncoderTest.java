@@ -0,0 +1,60 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiffEncoderTest {
+
+  // applies a diff to exponents and returns the number of changed cells
+  static int apply(ByteBuffer diff, int[] exponents) {
+    diff.get();
+    diff.getInt();
+    diff.getInt();
+    int changes = diff.get();
+    for (int i = 0; i < changes; i++) {
+      exponents[diff.get()] = diff.get();
+    }
+    assertFalse(diff.hasRemaining());
+    return changes;
+  }
+
+  @Test
+  void firstDiffHasAllTiles() {
+    Game game = new Game(BitboardTest.board(2, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 2048), 100, 7, new SplitMixSpawner(1));
+    ByteBuffer diff = new DiffEncoder(4).diff(game);
+
+    assertAll(
+            () -> assertEquals(DiffEncoder.WON, diff.get(0)),
+            () -> assertEquals(100, diff.getInt(1)),
+            () -> assertEquals(7, diff.getInt(5)),
+            () -> assertEquals(2, diff.get(9)),
+            () -> assertEquals(14, diff.remaining())
+    );
+  }
+
+  @Test
+  void mergedDiffsRebuildTheBoard() {
+    Game game = new Game(new SplitMixSpawner(3));
+    game.initialize();
+    DiffEncoder encoder = new DiffEncoder(4);
+    int[] client = new int[16];
+    apply(encoder.diff(game), client);
+
+    Direction[] directions = Direction.values();
+    for (int i = 0; i < 200 && !game.isOver(); i++) {
+      game.move(directions[i % directions.length]);
+      if (i % 7 == 0) {
+        apply(encoder.diff(game), client);
+      }
+    }
+    apply(encoder.diff(game), client);
+
+    for (int cell = 0; cell < 16; cell++) {
+      assertEquals(Bitboard.getExponent(game.getBoard(), cell / 4, cell % 4), client[cell]);
+    }
+    assertEquals(0, apply(encoder.diff(game), client));
+  }
+}
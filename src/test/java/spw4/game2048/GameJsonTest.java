@@ -0,0 +1,64 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.Test;
+import spw4.game2048.ai.SearchResult;
+import spw4.game2048.leaderboard.Score;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameJsonTest {
+
+  @Test
+  void stateListsAllCells() {
+    Game game = new Game(BitboardTest.board(2, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 4), 12, 3, new SplitMixSpawner(1));
+    UUID id = new UUID(1, 2);
+
+    assertEquals("{\"id\":\"" + id + "\",\"size\":4,\"target\":2048,\"score\":12,\"moves\":3,"
+            + "\"cells\":[2,0,0,0,0,0,0,0,0,0,0,0,0,0,0,4],\"over\":false,\"won\":false}", GameJson.state(id, game));
+  }
+
+  @Test
+  void moveSendsOnlyChangedCellsAndSpawn() {
+    Game game = new Game(BitboardTest.board(2, 2, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0), 0, 0, new SplitMixSpawner(7));
+    int[] before = GameJson.values(game);
+    assertTrue(game.move(Direction.left));
+    int spawn = game.getLastSpawn();
+    int cell = spawn >>> 4;
+    String json = GameJson.move(game, before, 0, true);
+
+    String changes = cell == 1 ? "[[0,4]]" : "[[0,4],[1,0]]";
+    assertEquals("{\"moved\":true,\"score\":4,\"scoreDelta\":4,\"moves\":1,\"changes\":" + changes
+            + ",\"spawn\":[" + cell + "," + Bitboard.toValue(spawn & 0xF) + "],\"over\":false,\"won\":false}", json);
+  }
+
+  @Test
+  void rejectedMoveChangesNothing() {
+    Game game = new Game(BitboardTest.board(2, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0), 0, 0, new SplitMixSpawner(7));
+    int[] before = GameJson.values(game);
+    boolean moved = game.move(Direction.left);
+
+    assertEquals("{\"moved\":false,\"score\":0,\"scoreDelta\":0,\"moves\":0,\"changes\":[],\"spawn\":null,\"over\":false,\"won\":false}",
+            GameJson.move(game, before, 0, moved));
+  }
+
+  @Test
+  void leaderboardRanksScores() {
+    UUID id = new UUID(1, 2);
+    Score score = new Score(id, 1234, 150, 4, 128, false, 86_400_000L);
+
+    assertEquals("{\"scores\":[{\"rank\":1,\"id\":\"" + id + "\",\"score\":1234,\"moves\":150,\"size\":4,"
+            + "\"maxValue\":128,\"won\":false,\"finished\":\"1970-01-02T00:00:00Z\"}]}", GameJson.leaderboard(List.of(score)));
+    assertEquals("{\"scores\":[]}", GameJson.leaderboard(List.of()));
+  }
+
+  @Test
+  void hintNamesDirectionValueAndDepth() {
+    assertEquals("{\"direction\":\"left\",\"value\":12.5,\"depth\":4}",
+            GameJson.hint(new SearchResult(Direction.left, 12.5, 4)));
+    assertEquals("{\"direction\":null,\"value\":-1.0E9,\"depth\":1}",
+            GameJson.hint(new SearchResult(null, -1e9, 1)));
+  }
+}
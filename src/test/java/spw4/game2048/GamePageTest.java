@@ -0,0 +1,130 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GamePageTest {
+
+  private static String newGameParameters(Game game) {
+    return game.isStandard() ? "" : "&size=" + game.getSize() + "&target=" + game.getWinningValue();
+  }
+
+  // the page as GameServlet used to build it
+  static String referenceHtml(UUID id, Game game) {
+    StringBuffer sb = new StringBuffer();
+
+    sb.append("<!DOCTYPE html>\n");
+    sb.append("<html lang=\"en\">\n");
+    sb.append("<head>\n");
+    sb.append("    <meta charset=\"UTF-8\">\n");
+    sb.append("    <title>2048</title>\n");
+    sb.append("    <link href=\"css/bootstrap.min.css\" rel=\"stylesheet\"/>\n");
+    sb.append("    <link href=\"icons/bootstrap-icons.css\" rel=\"stylesheet\"/>\n");
+    sb.append("    <script src=\"js/bootstrap.min.js\"></script>\n");
+    sb.append("</head>\n");
+    sb.append("<body>\n");
+    sb.append("    <h1 class=\"m-5 text-center\">Play 2048:</h1>\n");
+    sb.append("\n");
+    sb.append("    <div class=\"row\">\n");
+    sb.append("        <div class=\"col-4\"></div>\n");
+    sb.append("        <div class=\"col\">\n");
+    sb.append("            <div class=\"row\">\n");
+    sb.append("                <div class=\"col text-center pb-4\"><h5>Moves: " + game.getMoves() + "</h5></div>\n");
+    sb.append("                <div class=\"col text-center pb-4\"><h5>Score: " + game.getScore() + "</h5></div>\n");
+    sb.append("            </div>\n");
+    boolean over = game.isOver();
+    if (over && game.isWon()) {
+      sb.append("            <div class=\"row\">\n");
+      sb.append("                <div class=\"col text-center pb-4\"><h1><span class=\"badge badge-success w-75\">YOU WIN</span></h1></div>\n");
+      sb.append("            </div>\n");
+    } else if (over && !game.isWon()) {
+      sb.append("            <div class=\"row\">\n");
+      sb.append("                <div class=\"col text-center pb-4\"><h1><span class=\"badge badge-danger w-75\">YOU LOSE</span></h1></div>\n");
+      sb.append("            </div>\n");
+    }
+    sb.append("            <div class=\"row\">\n");
+    sb.append("                <div class=\"col-2\"></div>\n");
+    sb.append("                <div class=\"col text-center pb-4\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id=" + id + "&action=up\"><i class=\"bi-arrow-up\"></i></a></div>\n");
+    sb.append("                <div class=\"col-2\"></div>\n");
+    sb.append("            </div>\n");
+    sb.append("            <div class=\"row\">\n");
+    sb.append("                <div class=\"col-2 my-auto text-right\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id=" + id + "&action=left\"><i class=\"bi-arrow-left\"></i></a></div>\n");
+    sb.append("                <div class=\"col\">\n");
+    sb.append("                    <div class=\"container text-center bg-secondary\">\n");
+    int size = game.getSize();
+    for (int row = 0; row < size; row++) {
+      sb.append("                        <div class=\"row\">\n");
+      for (int col = 0; col < size; col++) {
+        sb.append("                            <div class=\"col mt-1 ml-1")
+            .append(row == size - 1 ? " mb-1" : "")
+            .append(col == size - 1 ? " mr-1" : "")
+            .append(" bg-light\">").append(game.getValueAt(row, col)).append("</div>\n");
+      }
+      sb.append("                        </div>\n");
+    }
+    sb.append("                    </div>\n");
+    sb.append("                </div>\n");
+    sb.append("                <div class=\"col-2 my-auto\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id=" + id + "&action=right\"><i class=\"bi-arrow-right\"></i></a></div>\n");
+    sb.append("            </div>\n");
+    sb.append("            <div class=\"row\">\n");
+    sb.append("                <div class=\"col-2\"></div>\n");
+    sb.append("                <div class=\"col text-center pt-4\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id=" + id + "&action=down\"><i class=\"bi-arrow-down\"></i></a></div>\n");
+    sb.append("                <div class=\"col-2\"></div>\n");
+    sb.append("            </div>\n");
+    sb.append("            <div class=\"row\">\n");
+    sb.append("                <div class=\"col text-center pt-4\"><a role=\"button\" class=\"btn btn-danger w-75\" href=\"Game?action=new" + newGameParameters(game) + "\">New Game</a></div>\n");
+    sb.append("                <div class=\"col text-center pt-4\"><a role=\"button\" class=\"btn btn-info w-75\" href=\"Game?id=" + id + "\">Refresh</a></div>\n");
+    sb.append("            </div>\n");
+    sb.append("        </div>\n");
+    sb.append("        <div class=\"col-4\"></div>\n");
+    sb.append("    </div>\n");
+    sb.append("</body>\n");
+    sb.append("</html>\n");
+
+    return sb.toString();
+  }
+
+  @Test
+  void sameHtmlAsBefore() {
+    GamePage page = new GamePage();
+    UUID id = UUID.randomUUID();
+    Game game = new Game(new SplitMixSpawner(1));
+    game.initialize();
+    for (int i = 0; i < 50; i++) {
+      game.move(Direction.values()[i % 4]);
+    }
+
+    assertEquals(referenceHtml(id, game), page.render(id, game).toString());
+  }
+
+  @Test
+  void finishedAndNonStandardGames() {
+    GamePage page = new GamePage();
+    UUID id = new UUID(-1, 0x0123456789abcdefL);
+    Game lost = new Game(BitboardTest.board(2, 4, 2, 4, 4, 2, 4, 2, 2, 4, 2, 4, 4, 2, 4, 2), -5, 1234567, new SplitMixSpawner());
+    Game large = new Game(5, 512, new SplitMixSpawner(5));
+    large.initialize();
+
+    assertAll(
+            () -> assertEquals(referenceHtml(id, lost), page.render(id, lost).toString()),
+            () -> assertEquals(referenceHtml(id, large), page.render(id, large).toString())
+    );
+  }
+
+  @Test
+  void writesExactlyLengthBytes() throws IOException {
+    GamePage page = new GamePage();
+    Game game = new Game(new SplitMixSpawner(2));
+    game.initialize();
+    page.render(UUID.randomUUID(), game);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    page.writeTo(out);
+
+    assertEquals(page.length(), out.size());
+  }
+}
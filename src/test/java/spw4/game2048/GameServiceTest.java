@@ -0,0 +1,139 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import spw4.game2048.store.StripedGameStore;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+public class GameServiceTest {
+
+  // one worker and one queued request
+  GameService service;
+  CountDownLatch running = new CountDownLatch(1);
+  CountDownLatch release = new CountDownLatch(1);
+
+  static final class Exchange {
+    final HttpServletRequest request = mock(HttpServletRequest.class);
+    final HttpServletResponse response = mock(HttpServletResponse.class);
+    final AsyncContext async = mock(AsyncContext.class);
+
+    Exchange() {
+      when(request.startAsync()).thenReturn(async);
+    }
+
+    void timeOut() throws IOException {
+      ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+      verify(async).addListener(listener.capture());
+      listener.getValue().onTimeout(new AsyncEvent(async));
+    }
+  }
+
+  @BeforeEach
+  void setUp() {
+    service = new GameService(new StripedGameStore(10, 60_000), null, 1, 1);
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    release.countDown();
+    service.close();
+  }
+
+  // occupies the only worker until release
+  Exchange blockWorker() throws Exception {
+    Exchange blocking = new Exchange();
+    service.dispatch(blocking.request, blocking.response, (request, response) -> {
+      running.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    assertTrue(running.await(1, TimeUnit.SECONDS));
+    return blocking;
+  }
+
+  @Test
+  void requestTimedOutInTheQueueIsAnsweredAndNeverRuns() throws Exception {
+    Exchange blocking = blockWorker();
+    Exchange queued = new Exchange();
+    AtomicBoolean ran = new AtomicBoolean();
+    service.dispatch(queued.request, queued.response, (request, response) -> ran.set(true));
+
+    queued.timeOut();
+    verify(queued.response).setHeader("Retry-After", "1");
+    verify(queued.response).sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    verify(queued.async).complete();
+
+    release.countDown();
+    verify(blocking.async, timeout(1000)).complete();
+    // the worker takes requests in order, so the queued one was skipped once this one ran
+    Exchange next = new Exchange();
+    service.dispatch(next.request, next.response, (request, response) -> { });
+    verify(next.async, timeout(1000)).complete();
+    assertFalse(ran.get());
+    verify(queued.async, times(1)).complete();
+  }
+
+  @Test
+  void requestTimedOutWhileRunningCannotWriteOrCompleteAgain() throws Exception {
+    Exchange exchange = new Exchange();
+    when(exchange.request.getServletContext()).thenReturn(mock(ServletContext.class));
+    AtomicReference<IOException> failure = new AtomicReference<>();
+    service.dispatch(exchange.request, exchange.response, (request, response) -> {
+      running.countDown();
+      try {
+        release.await();
+        response.getOutputStream().write(1);
+      } catch (IOException e) {
+        failure.set(e);
+        throw e;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    assertTrue(running.await(1, TimeUnit.SECONDS));
+
+    exchange.timeOut();
+    verify(exchange.async).complete();
+    release.countDown();
+
+    verify(exchange.async, after(300).times(1)).complete();
+    assertNotNull(failure.get());
+    verify(exchange.response, never()).getOutputStream();
+    verify(exchange.response, never()).sendError(anyInt());
+  }
+
+  @Test
+  void requestBeyondTheQueueIsRejected() throws Exception {
+    blockWorker();
+    Exchange queued = new Exchange();
+    service.dispatch(queued.request, queued.response, (request, response) -> { });
+    Exchange rejected = new Exchange();
+    AtomicBoolean ran = new AtomicBoolean();
+    service.dispatch(rejected.request, rejected.response, (request, response) -> ran.set(true));
+
+    verify(rejected.response).setHeader("Retry-After", "1");
+    verify(rejected.response).sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    verify(rejected.async).complete();
+    assertFalse(ran.get());
+  }
+}
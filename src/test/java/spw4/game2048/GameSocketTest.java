@@ -0,0 +1,115 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import spw4.game2048.store.StripedGameStore;
+
+import javax.websocket.CloseReason;
+import javax.websocket.MessageHandler;
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class GameSocketTest {
+
+  @Mock
+  Session session;
+  @Mock
+  RemoteEndpoint.Async remote;
+  StripedGameStore store;
+  GameService service;
+  UUID id = UUID.randomUUID();
+  MessageHandler.Whole<ByteBuffer> connection;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() {
+    store = new StripedGameStore(10, 60_000);
+    service = new GameService(store, null, 1, 1);
+    service.newGame(id, Bitboard.SIZE, Game.WINNING_VALUE);
+    Map<String, Object> properties = new HashMap<>();
+    when(session.getPathParameters()).thenReturn(Map.of("id", id.toString()));
+    when(session.getUserProperties()).thenReturn(properties);
+    when(session.getAsyncRemote()).thenReturn(remote);
+
+    new GameSocket(service).onOpen(session, null);
+    ArgumentCaptor<MessageHandler.Whole<ByteBuffer>> handler = ArgumentCaptor.forClass(MessageHandler.Whole.class);
+    verify(session).addMessageHandler(eq(ByteBuffer.class), handler.capture());
+    connection = handler.getValue();
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    service.close();
+  }
+
+  SendHandler lastSend(int sends) {
+    ArgumentCaptor<SendHandler> handler = ArgumentCaptor.forClass(SendHandler.class);
+    verify(remote, times(sends)).sendBinary(any(), handler.capture());
+    return handler.getValue();
+  }
+
+  CloseReason.CloseCode closeCode() throws IOException {
+    ArgumentCaptor<CloseReason> reason = ArgumentCaptor.forClass(CloseReason.class);
+    verify(session).close(reason.capture());
+    return reason.getValue().getCloseCode();
+  }
+
+  @Test
+  void movesArrivingWhileSendingGoIntoOneMoreDiff() {
+    SendHandler first = lastSend(1);
+    connection.onMessage(ByteBuffer.wrap(new byte[] {0, 1}));
+    connection.onMessage(ByteBuffer.wrap(new byte[] {2, 3}));
+    lastSend(1);
+
+    first.onResult(new SendResult());
+    SendHandler second = lastSend(2);
+    second.onResult(new SendResult());
+
+    lastSend(2);
+    verifyNoMoreInteractions(remote);
+  }
+
+  @Test
+  void failedSendClosesWithUnexpectedCondition() throws IOException {
+    lastSend(1).onResult(new SendResult(new IOException("reset")));
+
+    assertEquals(CloseReason.CloseCodes.UNEXPECTED_CONDITION, closeCode());
+  }
+
+  @Test
+  void invalidDirectionIsAProtocolError() throws IOException {
+    lastSend(1).onResult(new SendResult());
+    connection.onMessage(ByteBuffer.wrap(new byte[] {0, (byte) Direction.values().length}));
+
+    assertEquals(CloseReason.CloseCodes.PROTOCOL_ERROR, closeCode());
+    lastSend(1);
+  }
+
+  @Test
+  void expiredGameClosesTheSession() throws IOException {
+    lastSend(1).onResult(new SendResult());
+    assertTrue(store.remove(id));
+    connection.onMessage(ByteBuffer.wrap(new byte[] {0}));
+
+    assertEquals(CloseReason.CloseCodes.GOING_AWAY, closeCode());
+    lastSend(1);
+  }
+}
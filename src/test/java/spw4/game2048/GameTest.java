@@ -616,6 +616,57 @@ public class GameTest {
     }
   }
 
+  @ExtendWith(MockitoExtension.class)
+  @Nested
+  class LegalMoveTests {
+    @Mock
+    private Random random;
+
+    @BeforeEach
+      // 2  4  0  0
+      // 0  0  0  0
+      // 0  0  0  0
+      // 0  0  0  0
+    void setUpFixBoard() {
+      game = new Game(random);
+      when(random.nextDouble()).thenReturn(0.8).thenReturn(0.95);
+      when(random.nextInt()).thenReturn(0).thenReturn(0).thenReturn(0).thenReturn(1);
+      game.initialize();
+    }
+
+    @Test
+    void legalMovesOfCornerBoard() {
+      assertAll(
+              () -> assertFalse(game.canMove(Direction.up)),
+              () -> assertTrue(game.canMove(Direction.down)),
+              () -> assertFalse(game.canMove(Direction.left)),
+              () -> assertTrue(game.canMove(Direction.right)),
+              () -> assertFalse(game.isOver())
+      );
+    }
+
+    @Test
+    void isOverHasNoSideEffects() {
+      long board = game.getBoard();
+
+      for (int i = 0; i < 10; i++) {
+        game.isOver();
+      }
+
+      assertEquals(board, game.getBoard());
+      assertEquals(0, game.getScore());
+      assertEquals(0, game.getMoves());
+    }
+
+    @Test
+    void illegalMoveIsRejected() {
+      assertFalse(game.move(Direction.left));
+      assertEquals(0, game.getMoves());
+      assertTrue(game.move(Direction.right));
+      assertEquals(1, game.getMoves());
+    }
+  }
+
   @Test
   void gameOverTest() {
     Random random = Mockito.mock(Random.class);
@@ -701,4 +752,141 @@ public class GameTest {
 
     assertTrue(game.isWon());
   }
-}
\ No newline at end of file
+
+  @Nested
+  class SnapshotTests {
+    @BeforeEach
+    void setUpSeededGame() {
+      game = new Game(new SplitMixSpawner(2048));
+      game.initialize();
+    }
+
+    void play(Game game, int moves) {
+      Direction[] directions = Direction.values();
+      for (int i = 0; i < moves && !game.isOver(); i++) {
+        if (!game.move(directions[i % directions.length])) {
+          game.move(directions[(i + 1) % directions.length]);
+        }
+      }
+    }
+
+    @Test
+    void restoreReturnsToSnapshot() {
+      GameSnapshot snapshot = game.snapshot();
+      play(game, 10);
+      assertNotEquals(snapshot, game.snapshot());
+
+      game.restore(snapshot);
+      assertAll(
+              () -> assertEquals(snapshot, game.snapshot()),
+              () -> assertEquals(0, game.getUndoDepth())
+      );
+    }
+
+    @Test
+    void undoStepsBackThroughMoves() {
+      GameSnapshot start = game.snapshot();
+      play(game, 5);
+      int depth = game.getUndoDepth();
+      for (int i = 0; i < depth; i++) {
+        assertTrue(game.undo());
+      }
+
+      assertAll(
+              () -> assertEquals(start, game.snapshot()),
+              () -> assertFalse(game.undo())
+      );
+    }
+
+    @Test
+    void undoIsBounded() {
+      play(game, Game.UNDO_LIMIT + 10);
+      int moves = game.getMoves();
+      assertEquals(Game.UNDO_LIMIT, game.getUndoDepth());
+      for (int i = 0; i < Game.UNDO_LIMIT; i++) {
+        assertTrue(game.undo());
+      }
+
+      assertAll(
+              () -> assertFalse(game.undo()),
+              () -> assertEquals(moves - Game.UNDO_LIMIT, game.getMoves())
+      );
+    }
+
+    @Test
+    void forkIsIndependent() {
+      play(game, 5);
+      Game fork = game.fork();
+      GameSnapshot position = game.snapshot();
+      play(fork, 5);
+      int forkMoves = fork.getMoves() - position.getMoves();
+
+      assertAll(
+              () -> assertEquals(position, game.snapshot()),
+              () -> assertEquals(game.getUndoDepth() + forkMoves, fork.getUndoDepth())
+      );
+      for (int i = 0; i < forkMoves; i++) {
+        fork.undo();
+      }
+      assertEquals(position, fork.snapshot());
+    }
+  }
+
+  @Nested
+  class BoardSizeTests {
+    @Test
+    void largeBoardPlaysToTheEnd() {
+      game = new Game(6, Game.WINNING_VALUE, new SplitMixSpawner(6));
+      game.initialize();
+      Direction[] directions = Direction.values();
+      for (int i = 0; !game.isOver(); i++) {
+        game.move(directions[i % directions.length]);
+      }
+
+      assertAll(
+              () -> assertEquals(6, game.getSize()),
+              () -> assertTrue(game.getMoves() > 0),
+              () -> assertTrue(game.getScore() > 0),
+              () -> assertThrows(IllegalStateException.class, () -> game.getBoard()),
+              () -> assertThrows(IllegalArgumentException.class, () -> game.getValueAt(6, 0))
+      );
+    }
+
+    @Test
+    void smallTargetIsWon() {
+      game = new Game(3, 16, new SplitMixSpawner(3));
+      game.initialize();
+      while (!game.isOver() && !game.isWon()) {
+        if (!game.move(Direction.left)) {
+          if (!game.move(Direction.down)) {
+            if (!game.move(Direction.right)) game.move(Direction.up);
+          }
+        }
+      }
+      assertTrue(game.isWon());
+    }
+
+    @Test
+    void undoAndForkOnLargeBoard() {
+      game = new Game(5, Game.WINNING_VALUE, new SplitMixSpawner(5));
+      game.initialize();
+      GameSnapshot start = game.snapshot();
+      game.move(game.canMove(Direction.left) ? Direction.left : Direction.right);
+      Game fork = game.fork();
+
+      assertTrue(game.undo());
+      assertAll(
+              () -> assertEquals(start, game.snapshot()),
+              () -> assertNotEquals(start, fork.snapshot()),
+              () -> assertTrue(fork.undo()),
+              () -> assertEquals(start, fork.snapshot())
+      );
+    }
+
+    @Test
+    void invalidConfiguration() {
+      assertThrows(IllegalArgumentException.class, () -> new Game(9, Game.WINNING_VALUE, new SplitMixSpawner()));
+      assertThrows(IllegalArgumentException.class, () -> new Game(4, 1000, new SplitMixSpawner()));
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HttpCachingTest {
+
+  @Test
+  void ifNoneMatchLists() {
+    String etag = HttpCaching.etag(1, new Game(0x21, 4, 42, new SplitMixSpawner()));
+    assertAll(
+            () -> assertEquals("\"1-21-4-2a\"", etag),
+            () -> assertTrue(HttpCaching.matches(etag, etag)),
+            () -> assertTrue(HttpCaching.matches("\"x\", W/" + etag, etag)),
+            () -> assertTrue(HttpCaching.matches("*", etag)),
+            () -> assertFalse(HttpCaching.matches("\"1-2b\"", etag)),
+            () -> assertFalse(HttpCaching.matches(null, etag))
+    );
+  }
+
+  @Test
+  void etagFollowsWhatThePageShows() {
+    Game game = new Game(0x21, 4, 42, new SplitMixSpawner());
+    // rebuilt from a store, the version restarts at the move count but the ETag does not change
+    Game rebuilt = new Game(0x21, 4, 42, new SplitMixSpawner());
+    Game other = new Game(0x12, 4, 42, new SplitMixSpawner());
+    Game small = new Game(3, 64, new SplitMixSpawner(1));
+    small.initialize();
+
+    assertAll(
+            () -> assertEquals(HttpCaching.etag(1, game), HttpCaching.etag(1, rebuilt)),
+            () -> assertNotEquals(HttpCaching.etag(1, game), HttpCaching.etag(1, other)),
+            () -> assertNotEquals(HttpCaching.etag(1, game), HttpCaching.etag(2, game)),
+            () -> assertEquals(HttpCaching.etag(1, small), HttpCaching.etag(1, small.fork()))
+    );
+  }
+
+  @Test
+  void pageRevisionDependsOnAssetUrls() {
+    assertEquals(new GamePage().revision(), new GamePage().revision());
+    assertNotEquals(new GamePage().revision(), new GamePage(path -> path + "?v=1").revision());
+  }
+
+  @Test
+  void fingerprintFollowsContent() throws IOException {
+    String a = HttpCaching.fingerprint(new ByteArrayInputStream(new byte[]{1, 2, 3}));
+    assertEquals(a, HttpCaching.fingerprint(new ByteArrayInputStream(new byte[]{1, 2, 3})));
+    assertNotEquals(a, HttpCaching.fingerprint(new ByteArrayInputStream(new byte[]{1, 2, 4})));
+  }
+}
@@ -0,0 +1,62 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PackedRowsTest {
+
+  static int[] toRows(long board) {
+    int[] rows = new int[Bitboard.SIZE];
+    for (int row = 0; row < rows.length; row++) {
+      rows[row] = Bitboard.getRow(board, row);
+    }
+    return rows;
+  }
+
+  @Test
+  void tablesMatchComputedRows() {
+    PackedRows packed = PackedRows.forSize(3);
+    for (int row = 0; row < 1 << 12; row++) {
+      assertEquals(packed.computeSlideLeft(row), packed.slideLeft(row));
+      assertEquals(packed.computeSlideRight(row), packed.slideRight(row));
+      assertEquals(packed.computeScore(row), packed.score(row));
+    }
+  }
+
+  @Test
+  void sameMovesAsBitboardForFourByFour() {
+    PackedRows packed = PackedRows.forSize(4);
+    Random random = new Random(4);
+    for (int i = 0; i < 1000; i++) {
+      long board = random.nextLong() & 0x7777777777777777L & random.nextLong();
+      assertEquals(Bitboard.legalMoves(board), packed.legalMoves(toRows(board)));
+      for (Direction direction : Direction.values()) {
+        int[] rows = toRows(board);
+        assertEquals(Bitboard.score(board, direction), packed.move(rows, direction));
+        assertArrayEquals(toRows(Bitboard.move(board, direction)), rows);
+      }
+    }
+  }
+
+  @Test
+  void eightCellRowsUseTheWholeInt() {
+    PackedRows packed = PackedRows.forSize(8);
+    int row = 0xF;
+    for (int col = 1; col < 8; col++) {
+      row |= 0xF << 4 * col;
+    }
+    assertEquals(row, packed.slideLeft(row));
+    assertEquals(0, packed.score(row));
+    assertEquals(0x2 << 28, packed.slideRight(0x1100));
+    assertEquals(0x21 << 24, packed.slideRight(0x2100));
+  }
+
+  @Test
+  void unsupportedSizes() {
+    assertThrows(IllegalArgumentException.class, () -> PackedRows.forSize(2));
+    assertThrows(IllegalArgumentException.class, () -> PackedRows.forSize(9));
+  }
+}
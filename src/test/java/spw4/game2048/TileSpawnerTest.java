@@ -0,0 +1,83 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TileSpawnerTest {
+
+  @Test
+  void selectBitFindsKthSetBit() {
+    long bits = 1L | 1L << 5 | 1L << 17 | 1L << 63;
+    assertAll(
+            () -> assertEquals(0, SplitMixSpawner.selectBit(bits, 0)),
+            () -> assertEquals(5, SplitMixSpawner.selectBit(bits, 1)),
+            () -> assertEquals(17, SplitMixSpawner.selectBit(bits, 2)),
+            () -> assertEquals(63, SplitMixSpawner.selectBit(bits, 3))
+    );
+  }
+
+  @Test
+  void emptyCellsHasOneBitPerEmptyCell() {
+    long board = BitboardTest.board(2, 0, 0, 0, 0, 8, 0, 0, 0, 0, 0, 0, 0, 0, 0, 32768);
+    assertEquals(0xFFFFL & ~(1L | 1L << 5 | 1L << 15), Bitboard.emptyCells(board));
+  }
+
+  @Test
+  void splitMixPicksEmptyCellsUniformly() {
+    SplitMixSpawner spawner = new SplitMixSpawner(1);
+    long empty = 1L << 2 | 1L << 7 | 1L << 12;
+    int[] counts = new int[16];
+    int twos = 0;
+    for (int i = 0; i < 30_000; i++) {
+      int spawn = spawner.spawn(empty, 4);
+      counts[spawn >>> 4]++;
+      if ((spawn & 0xF) == 1) twos++;
+    }
+
+    for (int cell = 0; cell < 16; cell++) {
+      if ((empty >>> cell & 1) == 0) {
+        assertEquals(0, counts[cell]);
+      } else {
+        assertEquals(10_000, counts[cell], 400);
+      }
+    }
+    assertEquals(27_000, twos, 400);
+  }
+
+  @Test
+  void stateContinuesTheSameSequence() {
+    SplitMixSpawner spawner = new SplitMixSpawner(42);
+    spawner.spawn(0xFFFF, 4);
+    SplitMixSpawner copy = new SplitMixSpawner(spawner.getState());
+    for (int i = 0; i < 100; i++) {
+      assertEquals(spawner.spawn(0xFFFF, 4), copy.spawn(0xFFFF, 4));
+    }
+  }
+
+  @Test
+  void splitGivesADifferentSequence() {
+    SplitMixSpawner spawner = new SplitMixSpawner(42);
+    SplitMixSpawner split = spawner.split();
+    assertNotEquals(spawner.nextLong(), split.nextLong());
+  }
+
+  @Test
+  void randomSpawnerHandlesMinValue() {
+    Random random = new Random() {
+      @Override
+      public int nextInt() {
+        return Integer.MIN_VALUE;
+      }
+    };
+    int spawn = new RandomSpawner(random).spawn(1L << 15, 4);
+    assertEquals(15, spawn >>> 4);
+  }
+
+  @Test
+  void legacyStateIsUnavailable() {
+    assertThrows(UnsupportedOperationException.class, () -> new RandomSpawner(new Random()).getState());
+  }
+}
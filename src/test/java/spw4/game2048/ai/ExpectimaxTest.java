@@ -0,0 +1,115 @@
+package spw4.game2048.ai;
+
+import org.junit.jupiter.api.Test;
+import spw4.game2048.Bitboard;
+import spw4.game2048.Direction;
+import spw4.game2048.Game;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExpectimaxTest {
+
+  static long board(int... values) {
+    long board = 0;
+    for (int i = 0; i < values.length; i++) {
+      board = Bitboard.setExponent(board, i / 4, i % 4, Bitboard.toExponent(values[i]));
+    }
+    return board;
+  }
+
+  @Test
+  void noMoveOnLostBoard() {
+    long board = board(
+            2, 4, 2, 4,
+            4, 2, 4, 2,
+            2, 4, 2, 4,
+            4, 2, 4, 2);
+    SearchResult result = new Expectimax(WeightedHeuristic.standard(), 2).search(board);
+
+    assertNull(result.getDirection());
+    assertEquals(Expectimax.LOST, result.getValue());
+  }
+
+  @Test
+  void onlyLegalMoveIsChosen() {
+    long board = board(
+            2, 4, 2, 4,
+            4, 2, 4, 2,
+            2, 4, 2, 4,
+            0, 0, 0, 0);
+
+    assertEquals(Direction.down, new Expectimax(WeightedHeuristic.standard(), 3).search(board).getDirection());
+  }
+
+  @Test
+  void transpositionTableDoesNotChangeResult() {
+    long board = board(
+            2, 0, 0, 2,
+            4, 8, 0, 0,
+            16, 2, 2, 0,
+            128, 64, 4, 2);
+    SearchResult cached = new Expectimax(WeightedHeuristic.standard(), 3).search(board);
+    SearchResult uncached = new Expectimax(WeightedHeuristic.standard(), 3, new TranspositionTable(1)).search(board);
+
+    assertEquals(uncached.getDirection(), cached.getDirection());
+    assertEquals(uncached.getValue(), cached.getValue(), 1e-6);
+  }
+
+  @Test
+  void parallelSearchMatchesSequential() {
+    long board = board(
+            2, 0, 0, 2,
+            4, 8, 0, 0,
+            16, 2, 2, 0,
+            128, 64, 4, 2);
+    SearchResult sequential = new Expectimax(WeightedHeuristic.standard(), 3).search(board);
+
+    for (int threads : new int[]{1, 4}) {
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      try {
+        SearchResult parallel = new ParallelExpectimax(WeightedHeuristic.standard(), 3, pool).search(board);
+        assertEquals(sequential.getDirection(), parallel.getDirection());
+        assertEquals(sequential.getValue(), parallel.getValue());
+      } finally {
+        pool.shutdown();
+      }
+    }
+  }
+
+  @Test
+  void iterativeDeepeningMatchesFixedDepth() {
+    long board = board(
+            2, 0, 0, 2,
+            4, 8, 0, 0,
+            16, 2, 2, 0,
+            128, 64, 4, 2);
+    IterativeDeepening search = new IterativeDeepening(WeightedHeuristic.standard(), 3, new TranspositionTable(1 << 16));
+
+    SearchResult quick = search.search(board, 0);
+    SearchResult full = search.search(board, Long.MAX_VALUE / 1000);
+    SearchResult fixed = new Expectimax(WeightedHeuristic.standard(), 3).search(board);
+
+    assertAll(
+            () -> assertEquals(1, quick.getDepth(), "depth 1 is always searched"),
+            () -> assertEquals(3, full.getDepth()),
+            () -> assertEquals(fixed.getDirection(), full.getDirection()),
+            () -> assertEquals(fixed.getValue(), full.getValue(), 1e-6)
+    );
+  }
+
+  @Test
+  void playsBetterThanRandom() {
+    Game game = new Game(new Random(42));
+    game.initialize();
+    Expectimax expectimax = new Expectimax(WeightedHeuristic.standard(), 2);
+
+    while (!game.isOver()) {
+      game.move(expectimax.bestMove(game));
+    }
+
+    assertTrue(Bitboard.maxExponent(game.getBoard()) >= Bitboard.toExponent(512));
+  }
+}
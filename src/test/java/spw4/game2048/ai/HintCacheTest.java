@@ -0,0 +1,73 @@
+package spw4.game2048.ai;
+
+import org.junit.jupiter.api.Test;
+import spw4.game2048.Direction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HintCacheTest {
+
+  static SearchResult result(int value) {
+    return new SearchResult(Direction.left, value, 3);
+  }
+
+  @Test
+  void returnsWhatWasPut() {
+    HintCache cache = new HintCache(16);
+    cache.put(42, result(1));
+
+    assertAll(
+            () -> assertEquals(1, cache.get(42).getValue()),
+            () -> assertNull(cache.get(43)),
+            () -> assertEquals(1, cache.size())
+    );
+  }
+
+  @Test
+  void evictsLeastRecentlyUsed() {
+    HintCache cache = new HintCache(2, 1);
+    cache.put(1, result(1));
+    cache.put(2, result(2));
+    cache.get(1);
+    cache.put(3, result(3));
+
+    assertAll(
+            () -> assertNotNull(cache.get(1)),
+            () -> assertNull(cache.get(2), "least recently used"),
+            () -> assertNotNull(cache.get(3)),
+            () -> assertEquals(2, cache.size())
+    );
+  }
+
+  @Test
+  void staysWithinCapacityUnderConcurrentUse() throws Exception {
+    HintCache cache = new HintCache(1000);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> workers = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        int offset = t * 100_000;
+        workers.add(executor.submit(() -> {
+          for (int i = 0; i < 100_000; i++) {
+            cache.put(offset + i, result(i));
+            cache.get(offset + i / 2);
+          }
+        }));
+      }
+      for (Future<?> worker : workers) {
+        worker.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertTrue(cache.size() <= 1000);
+    assertTrue(cache.size() > 500);
+  }
+}
@@ -0,0 +1,133 @@
+package spw4.game2048.leaderboard;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import spw4.game2048.Game;
+import spw4.game2048.SplitMixSpawner;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LeaderboardTest {
+
+  static final long DAY = 86_400_000L;
+
+  static Score score(int points, int moves, int size, long finishedAt) {
+    return new Score(UUID.randomUUID(), points, moves, size, 2048, false, finishedAt);
+  }
+
+  static List<Integer> points(List<Score> scores) {
+    return scores.stream().map(Score::getScore).collect(Collectors.toList());
+  }
+
+  @Nested
+  class TopKTests {
+
+    @Test
+    void keepsBestScores() {
+      TopK top = new TopK(3);
+      for (int points : new int[]{50, 10, 40, 30, 20, 60}) {
+        top.offer(score(points, 100, 4, 0));
+      }
+      assertEquals(List.of(60, 50, 40), points(top.top(10)));
+      assertEquals(List.of(60, 50), points(top.top(2)));
+    }
+
+    @Test
+    void turnsAwayScoresBelowLastPlace() {
+      TopK top = new TopK(2);
+      assertTrue(top.offer(score(50, 100, 4, 0)));
+      assertTrue(top.offer(score(40, 100, 4, 0)));
+      assertFalse(top.offer(score(40, 120, 4, 0)));
+      assertFalse(top.offer(score(10, 10, 4, 0)));
+      assertTrue(top.offer(score(40, 90, 4, 0)));
+      assertEquals(List.of(100, 90), top.top(2).stream().map(Score::getMoves).collect(Collectors.toList()));
+    }
+
+    @Test
+    void tiesRankByMovesThenTime() {
+      TopK top = new TopK(10);
+      Score late = score(100, 50, 4, 2000);
+      Score early = score(100, 50, 4, 1000);
+      Score quick = score(100, 40, 4, 3000);
+      top.offer(late);
+      top.offer(early);
+      top.offer(quick);
+      assertEquals(List.of(quick, early, late), top.top(10));
+    }
+
+    @Test
+    void concurrentOffersKeepTheBest() throws InterruptedException {
+      TopK top = new TopK(100);
+      ExecutorService pool = Executors.newFixedThreadPool(4);
+      for (int t = 0; t < 4; t++) {
+        int offset = t;
+        pool.execute(() -> {
+          for (int i = offset; i < 20_000; i += 4) {
+            top.offer(score(i, 0, 4, 0));
+          }
+        });
+      }
+      pool.shutdown();
+      assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+      List<Integer> best = points(top.top(1000));
+      assertEquals(100, best.size());
+      assertEquals(19_999, best.get(0));
+      assertEquals(19_900, best.get(99));
+    }
+  }
+
+  @Test
+  void boardsOverallPerDayAndPerSize() {
+    long now = 20_000 * DAY + 5000;
+    Leaderboard leaderboard = new Leaderboard(10, () -> now);
+    leaderboard.submit(score(300, 10, 4, now));
+    leaderboard.submit(score(200, 10, 3, now - DAY));
+    leaderboard.submit(score(100, 10, 4, now - DAY));
+
+    assertAll(
+            () -> assertEquals(List.of(300, 200, 100), points(leaderboard.overall(10))),
+            () -> assertEquals(List.of(300), points(leaderboard.today(10))),
+            () -> assertEquals(List.of(200, 100), points(leaderboard.day(LocalDate.ofEpochDay(19_999), 10))),
+            () -> assertEquals(List.of(300, 100), points(leaderboard.size(4, 10))),
+            () -> assertEquals(List.of(200), points(leaderboard.size(3, 10))),
+            () -> assertEquals(List.of(), leaderboard.size(5, 10))
+    );
+  }
+
+  @Test
+  void dropsOldDays() {
+    long now = 20_000 * DAY;
+    Leaderboard leaderboard = new Leaderboard(10, () -> now);
+    leaderboard.submit(score(100, 10, 4, now - Leaderboard.DAYS_KEPT * DAY));
+    leaderboard.submit(score(200, 10, 4, now));
+
+    assertEquals(List.of(), leaderboard.day(LocalDate.ofEpochDay(20_000 - Leaderboard.DAYS_KEPT), 10));
+    assertEquals(List.of(200, 100), points(leaderboard.overall(10)));
+  }
+
+  @Test
+  void submitsFinishedGame() {
+    Leaderboard leaderboard = new Leaderboard(10, () -> 42);
+    Game game = new Game(3, 64, new SplitMixSpawner(1));
+    game.initialize();
+    UUID id = UUID.randomUUID();
+    leaderboard.submit(id, game);
+
+    Score score = leaderboard.overall(1).get(0);
+    assertAll(
+            () -> assertEquals(id, score.getId()),
+            () -> assertEquals(3, score.getSize()),
+            () -> assertEquals(game.getMaxValue(), score.getMaxValue()),
+            () -> assertEquals(42, score.getFinishedAt())
+    );
+  }
+}
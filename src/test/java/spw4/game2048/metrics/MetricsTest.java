@@ -0,0 +1,112 @@
+package spw4.game2048.metrics;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTest {
+
+  @Nested
+  class HistogramTests {
+
+    @Test
+    void bucketsCoverValuesWithinAnEighth() {
+      for (long value : new long[]{0, 1, 7, 8, 9, 15, 16, 17, 100, 1000, 123_456_789, (1L << 40) - 1}) {
+        int index = Histogram.index(value);
+        assertTrue(index < Histogram.BUCKETS);
+        assertTrue(Histogram.highestValue(index) >= value, "bucket of " + value);
+        assertTrue(Histogram.highestValue(index) - value <= value / 8, "bucket of " + value);
+        if (index > 0) assertTrue(Histogram.highestValue(index - 1) < value, "bucket of " + value);
+      }
+    }
+
+    @Test
+    void quantiles() {
+      Histogram histogram = new Histogram();
+      assertEquals(0, histogram.valueAtQuantile(0.5));
+      for (int i = 1; i <= 1000; i++) {
+        histogram.record(i * 1000L);
+      }
+      assertAll(
+              () -> assertEquals(1000, histogram.count()),
+              () -> assertEquals(500_500_000L, histogram.sum()),
+              () -> assertEquals(500_000, histogram.valueAtQuantile(0.5), 500_000 / 8.0),
+              () -> assertEquals(990_000, histogram.valueAtQuantile(0.99), 990_000 / 8.0),
+              () -> assertEquals(1_000_000, histogram.valueAtQuantile(1.0), 1_000_000 / 8.0)
+      );
+    }
+
+    @Test
+    void clampsOutOfRangeValues() {
+      Histogram histogram = new Histogram();
+      histogram.record(-5);
+      histogram.record(Long.MAX_VALUE);
+      assertEquals(0, histogram.valueAtQuantile(0.5));
+      assertEquals((1L << 40) - 1, histogram.valueAtQuantile(1.0));
+    }
+  }
+
+  @Test
+  void prometheusText() throws IOException {
+    Metrics metrics = new Metrics();
+    LongAdder up = metrics.counter("moves_total", "direction=\"up\"", "Moves.");
+    metrics.counter("moves_total", "direction=\"down\"", "Moves.");
+    metrics.gauge("games", "Games.", () -> 3);
+    Histogram latency = metrics.histogram("latency_seconds", "Latency.");
+    up.add(2);
+    latency.record(1_000_000_000);
+
+    StringBuilder text = new StringBuilder();
+    metrics.writeTo(text);
+    assertEquals(""
+            + "# HELP moves_total Moves.\n"
+            + "# TYPE moves_total counter\n"
+            + "moves_total{direction=\"up\"} 2\n"
+            + "moves_total{direction=\"down\"} 0\n"
+            + "# HELP games Games.\n"
+            + "# TYPE games gauge\n"
+            + "games 3\n"
+            + "# HELP latency_seconds Latency.\n"
+            + "# TYPE latency_seconds summary\n"
+            + "latency_seconds{quantile=\"0.5\"} " + Histogram.highestValue(Histogram.index(1_000_000_000)) / 1e9 + "\n"
+            + "latency_seconds{quantile=\"0.9\"} " + Histogram.highestValue(Histogram.index(1_000_000_000)) / 1e9 + "\n"
+            + "latency_seconds{quantile=\"0.99\"} " + Histogram.highestValue(Histogram.index(1_000_000_000)) / 1e9 + "\n"
+            + "latency_seconds{quantile=\"0.999\"} " + Histogram.highestValue(Histogram.index(1_000_000_000)) / 1e9 + "\n"
+            + "latency_seconds_sum 1.0\n"
+            + "latency_seconds_count 1\n", text.toString());
+  }
+
+  @Test
+  void rejectsDuplicates() {
+    Metrics metrics = new Metrics();
+    metrics.counter("a_total", "A.");
+    assertThrows(IllegalArgumentException.class, () -> metrics.counter("a_total", "A."));
+    assertThrows(IllegalArgumentException.class, () -> metrics.gauge("a_total", "A.", () -> 0));
+  }
+
+  @Test
+  void jmxAttributes() throws Exception {
+    Metrics metrics = new Metrics();
+    metrics.counter("moves_total", "direction=\"up\"", "Moves.").increment();
+    metrics.histogram("latency_seconds", "Latency.").record(100);
+    ObjectName name = new ObjectName("spw4.game2048.test:type=Metrics");
+    metrics.registerMBean(name);
+    try {
+      assertAll(
+              () -> assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "moves_total.up")),
+              () -> assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "latency_seconds.count")),
+              () -> assertEquals(Histogram.highestValue(Histogram.index(100)),
+                      ManagementFactory.getPlatformMBeanServer().getAttribute(name, "latency_seconds.p99"))
+      );
+    } finally {
+      metrics.unregisterMBean();
+    }
+    assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+  }
+}
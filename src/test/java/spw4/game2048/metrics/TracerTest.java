@@ -0,0 +1,70 @@
+package spw4.game2048.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TracerTest {
+
+  @Test
+  void disabledRecordsNothing() throws IOException {
+    Tracer tracer = new Tracer(16, 0);
+    long trace = tracer.begin();
+    assertEquals(0, trace);
+    assertEquals(0, Tracer.now(trace));
+    assertEquals(0, tracer.span(trace, Tracer.Phase.move, 0));
+    assertEquals(List.of("# trace phase start_us duration_ns"), lines(tracer));
+  }
+
+  @Test
+  void recordsSpansInOrder() throws IOException {
+    Tracer tracer = new Tracer(16, 1);
+    long trace = tracer.begin();
+    assertNotEquals(0, trace);
+    long start = Tracer.now(trace);
+    long next = tracer.span(trace, Tracer.Phase.parse, start);
+    assertTrue(next >= start);
+    tracer.span(trace, Tracer.Phase.move, next);
+
+    String[] lines = lines(tracer).toArray(new String[0]);
+    assertAll(
+            () -> assertEquals(3, lines.length),
+            () -> assertTrue(lines[1].startsWith(trace + " parse ")),
+            () -> assertTrue(lines[2].startsWith(trace + " move "))
+    );
+  }
+
+  @Test
+  void ringKeepsNewestSpans() throws IOException {
+    Tracer tracer = new Tracer(4, 1);
+    for (int i = 0; i < 10; i++) {
+      long trace = tracer.begin();
+      tracer.span(trace, Tracer.Phase.request, Tracer.now(trace));
+    }
+    List<String> lines = lines(tracer);
+    assertEquals(5, lines.size());
+    assertTrue(lines.get(1).startsWith("7 "));
+    assertTrue(lines.get(4).startsWith("10 "));
+  }
+
+  @Test
+  void samplesAFraction() {
+    Tracer tracer = new Tracer(16, 10);
+    int traced = 0;
+    for (int i = 0; i < 10_000; i++) {
+      if (tracer.begin() != 0) traced++;
+    }
+    assertTrue(traced > 800 && traced < 1200, traced + " of 10000 traced");
+    assertThrows(IllegalArgumentException.class, () -> tracer.setSampleEvery(-1));
+  }
+
+  private static List<String> lines(Tracer tracer) throws IOException {
+    StringBuilder text = new StringBuilder();
+    tracer.writeTo(text);
+    return Arrays.asList(text.toString().split("\n"));
+  }
+}
@@ -0,0 +1,134 @@
+package spw4.game2048.replay;
+
+import org.junit.jupiter.api.Test;
+import spw4.game2048.Bitboard;
+import spw4.game2048.Direction;
+import spw4.game2048.Game;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplayTest {
+
+  static final long SEED = 77;
+
+  List<Long> boards = new ArrayList<>();
+
+  byte[] recordGame() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Random moves = new Random(1);
+    Direction[] directions = Direction.values();
+    Game game = ReplayFormat.newGame(SEED);
+    boards.add(game.getBoard());
+
+    try (ReplayWriter writer = new ReplayWriter(bytes, SEED)) {
+      while (!game.isOver()) {
+        if (writer.move(game, directions[moves.nextInt(directions.length)])) {
+          boards.add(game.getBoard());
+        }
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  @Test
+  void finalGameIsRebuilt() throws IOException {
+    byte[] replay = recordGame();
+
+    try (ReplayReader reader = new ReplayReader(new ByteArrayInputStream(replay))) {
+      Game game = reader.finalGame();
+      assertEquals(SEED, reader.getSeed());
+      assertEquals(boards.get(boards.size() - 1), game.getBoard());
+      assertTrue(game.isOver());
+    }
+  }
+
+  @Test
+  void intermediateStatesAreRebuilt() throws IOException {
+    byte[] replay = recordGame();
+
+    for (int moves : new int[]{0, 1, boards.size() / 2, boards.size() - 1}) {
+      try (ReplayReader reader = new ReplayReader(new ByteArrayInputStream(replay))) {
+        assertEquals(boards.get(moves), reader.gameAfter(moves).getBoard());
+      }
+    }
+  }
+
+  @Test
+  void movesTakeTwoBitsEach() throws IOException {
+    byte[] replay = recordGame();
+    int moves = boards.size() - 1;
+
+    // header, chunk length, packed moves, end marker
+    assertEquals(13 + (moves < 128 ? 1 : 2) + (moves + 3) / 4 + 1, replay.length);
+  }
+
+  @Test
+  void longReplaysSpanSeveralChunks() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    int moves = 2 * ReplayFormat.CHUNK_MOVES + 3;
+    try (ReplayWriter writer = new ReplayWriter(bytes, SEED)) {
+      for (int i = 0; i < moves; i++) {
+        writer.append(Direction.values()[i % 4]);
+      }
+    }
+
+    try (ReplayReader reader = new ReplayReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+      for (int i = 0; i < moves; i++) {
+        assertEquals(Direction.values()[i % 4], reader.next());
+      }
+      assertNull(reader.next());
+    }
+  }
+
+  // the spawn of the original Game, before tile spawners: v1 replays were recorded with it
+  static long baselineSpawn(long board, Random random) {
+    int exponent = random.nextDouble() <= Game.PROBABILITY_OF_TWO ? 1 : 2;
+    int row = Math.abs(random.nextInt()) % 4;
+    int col = Math.abs(random.nextInt()) % 4;
+    while (Bitboard.getExponent(board, row, col) != 0) {
+      row++;
+      row %= 4;
+      if (row == 0) {
+        col++;
+        col %= 4;
+      }
+    }
+    return Bitboard.setExponent(board, row, col, exponent);
+  }
+
+  @Test
+  void version1ReplaysFollowTheBaselineSpawns() throws IOException {
+    for (long seed = 0; seed < 20; seed++) {
+      Random random = new Random(seed);
+      long board = baselineSpawn(baselineSpawn(0, random), random);
+      Random moves = new Random(seed + 1000);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ReplayWriter writer = new ReplayWriter(bytes, seed)) {
+        for (int stuck = 0; stuck < 100; ) {
+          Direction direction = Direction.values()[moves.nextInt(4)];
+          long moved = Bitboard.move(board, direction);
+          if (moved == board) {
+            stuck++;
+            continue;
+          }
+          board = Bitboard.countEmpty(moved) == 0 ? moved : baselineSpawn(moved, random);
+          writer.append(direction);
+          stuck = 0;
+        }
+      }
+      byte[] replay = bytes.toByteArray();
+      replay[4] = 1;
+
+      try (ReplayReader reader = new ReplayReader(new ByteArrayInputStream(replay))) {
+        assertEquals(board, reader.finalGame().getBoard(), "seed " + seed);
+      }
+    }
+  }
+}
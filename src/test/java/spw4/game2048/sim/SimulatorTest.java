@@ -0,0 +1,39 @@
+package spw4.game2048.sim;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SimulatorTest {
+
+  @Test
+  void sameSeedSameStatsForAnyThreadCount() {
+    SimulationStats single = new Simulator(RandomStrategy::new, 1).run(300, 7);
+    SimulationStats parallel = new Simulator(RandomStrategy::new, 3).run(300, 7);
+
+    assertAll(
+            () -> assertEquals(300, single.getGames()),
+            () -> assertEquals(single.getGames(), parallel.getGames()),
+            () -> assertEquals(single.getAverageScore(), parallel.getAverageScore()),
+            () -> assertEquals(single.getAverageMoves(), parallel.getAverageMoves()),
+            () -> assertEquals(single.getMaxScore(), parallel.getMaxScore()),
+            () -> assertEquals(single.getGamesWithMaxTile(128), parallel.getGamesWithMaxTile(128))
+    );
+  }
+
+  @Test
+  void differentSeedsDifferentGames() {
+    SimulationStats first = new Simulator(RandomStrategy::new, 1).run(100, 1);
+    SimulationStats second = new Simulator(RandomStrategy::new, 1).run(100, 2);
+
+    assertNotEquals(first.getAverageMoves(), second.getAverageMoves());
+  }
+
+  @Test
+  void greedyBeatsRandom() {
+    SimulationStats random = new Simulator(RandomStrategy::new, 2).run(200, 11);
+    SimulationStats greedy = new Simulator(GreedyStrategy::new, 2).run(200, 11);
+
+    assertTrue(greedy.getAverageScore() > random.getAverageScore());
+  }
+}
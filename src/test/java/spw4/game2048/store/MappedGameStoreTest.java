@@ -0,0 +1,132 @@
+package spw4.game2048.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import spw4.game2048.Direction;
+import spw4.game2048.Game;
+import spw4.game2048.RandomSpawner;
+import spw4.game2048.SplitMixSpawner;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedGameStoreTest {
+
+  static final long TTL = 60_000;
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void gamesSurviveReopen() throws IOException {
+    Path file = dir.resolve("games.store");
+    UUID kept = UUID.randomUUID();
+    UUID removed = UUID.randomUUID();
+    long board;
+
+    try (MappedGameStore store = new MappedGameStore(file, 10, TTL)) {
+      Game game = new Game(new SplitMixSpawner(3));
+      game.initialize();
+      store.put(kept, game);
+      store.put(removed, new Game());
+      board = store.withGame(kept, g -> {
+        g.move(Direction.left);
+        g.move(Direction.up);
+        return g.getBoard();
+      });
+      store.remove(removed);
+    }
+
+    try (MappedGameStore store = new MappedGameStore(file, 10, TTL)) {
+      assertAll(
+              () -> assertEquals(1, store.size()),
+              () -> assertEquals(board, store.withGame(kept, Game::getBoard)),
+              () -> assertNull(store.withGame(removed, g -> g))
+      );
+    }
+  }
+
+  @Test
+  void gamesWithoutSpawnerStateAreRejectedWithoutTakingASlot() throws IOException {
+    try (MappedGameStore store = new MappedGameStore(dir.resolve("games.store"), 1, TTL)) {
+      Game game = new Game(new RandomSpawner(new Random(1)));
+      assertThrows(IllegalArgumentException.class, () -> store.put(UUID.randomUUID(), game));
+      store.put(UUID.randomUUID(), new Game());
+
+      assertEquals(1, store.size());
+      assertEquals(0, store.getEvictions());
+    }
+  }
+
+  @Test
+  void freedSlotsAreReused() throws IOException {
+    try (MappedGameStore store = new MappedGameStore(dir.resolve("games.store"), 2, TTL)) {
+      UUID first = UUID.randomUUID();
+      store.put(first, new Game());
+      store.put(UUID.randomUUID(), new Game());
+      store.remove(first);
+      UUID third = UUID.randomUUID();
+      store.put(third, new Game(0, 0, 7, new SplitMixSpawner(7)));
+
+      assertEquals(7, store.withGame(third, Game::getMoves));
+      assertEquals(2, store.size());
+      assertEquals(0, store.getEvictions());
+    }
+  }
+
+  @Test
+  void fullStoreEvictsLeastRecentlyUsed() throws IOException {
+    long[] now = {0};
+    // small enough for one sample to cover every game
+    try (MappedGameStore store = new MappedGameStore(dir.resolve("games.store"), 8, TTL, () -> now[0])) {
+      UUID[] ids = new UUID[8];
+      for (int i = 0; i < ids.length; i++) {
+        ids[i] = UUID.randomUUID();
+        store.put(ids[i], new Game());
+        now[0] += 1_000;
+      }
+      store.withGame(ids[0], g -> g);
+      UUID added = UUID.randomUUID();
+      store.put(added, new Game());
+
+      assertAll(
+              () -> assertNotNull(store.withGame(ids[0], g -> g), "touched last"),
+              () -> assertNull(store.withGame(ids[1], g -> g), "least recently used"),
+              () -> assertNotNull(store.withGame(added, g -> g)),
+              () -> assertEquals(8, store.size()),
+              () -> assertEquals(1, store.getEvictions())
+      );
+    }
+  }
+
+  @Test
+  void fullStoreEvictsExpiredGames() throws IOException {
+    long[] now = {0};
+    try (MappedGameStore store = new MappedGameStore(dir.resolve("games.store"), 4, TTL, () -> now[0])) {
+      for (int i = 0; i < 4; i++) {
+        store.put(UUID.randomUUID(), new Game());
+      }
+      now[0] += TTL + 1_000;
+      store.put(UUID.randomUUID(), new Game());
+
+      assertAll(
+              () -> assertEquals(1, store.size()),
+              () -> assertEquals(4, store.getEvictions())
+      );
+    }
+  }
+
+  @Test
+  void capacityIsReadFromExistingFile() throws IOException {
+    Path file = dir.resolve("games.store");
+    new MappedGameStore(file, 3, TTL).close();
+
+    try (MappedGameStore store = new MappedGameStore(file, 100, TTL)) {
+      assertEquals(3, store.getCapacity());
+    }
+  }
+}
@@ -0,0 +1,320 @@
+package spw4.game2048.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import spw4.game2048.Direction;
+import spw4.game2048.Game;
+import spw4.game2048.RandomSpawner;
+import spw4.game2048.SplitMixSpawner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoveJournalTest {
+
+  @TempDir
+  Path dir;
+
+  static Game play(MoveJournal journal, UUID id, long seed, int moves) {
+    Random random = new Random(seed);
+    Game game = new Game(new SplitMixSpawner(seed));
+    game.initialize();
+    long sequence = journal.logGame(id, game);
+    Direction[] directions = Direction.values();
+    for (int i = 0; i < moves && !game.isOver(); i++) {
+      Direction direction = directions[random.nextInt(directions.length)];
+      long before = game.getBoard();
+      if (game.move(direction)) {
+        sequence = journal.logMove(id, direction, before, game);
+      }
+    }
+    journal.await(sequence);
+    return game;
+  }
+
+  static StripedGameStore newStore() {
+    return new StripedGameStore(100, 60_000);
+  }
+
+  @Test
+  void recoveryRestoresGames() throws IOException {
+    Path file = dir.resolve("moves.log");
+    UUID id = UUID.randomUUID();
+    Game game;
+    try (MoveJournal journal = new MoveJournal(file)) {
+      game = play(journal, id, 5, 200);
+    }
+
+    StripedGameStore store = newStore();
+    assertEquals(1, MoveJournal.recover(file, store));
+    assertAll(
+            () -> assertEquals(game.getBoard(), store.withGame(id, Game::getBoard)),
+            () -> assertEquals(game.getScore(), store.withGame(id, Game::getScore)),
+            () -> assertEquals(game.getMoves(), store.withGame(id, Game::getMoves)),
+            () -> assertEquals(MoveJournal.HEADER_SIZE + MoveJournal.RECORD_SIZE, Files.size(file))
+    );
+  }
+
+  @Test
+  void gamesWithoutSpawnerStateAreNotJournaled() throws IOException {
+    Path file = dir.resolve("moves.log");
+    Game game = new Game(new RandomSpawner(new Random(1)));
+    game.initialize();
+    long before = game.getBoard();
+    Direction legal = game.canMove(Direction.left) ? Direction.left : Direction.right;
+    game.move(legal);
+    try (MoveJournal journal = new MoveJournal(file)) {
+      assertThrows(IllegalArgumentException.class, () -> journal.logGame(UUID.randomUUID(), game));
+      assertThrows(IllegalArgumentException.class, () -> journal.logMove(UUID.randomUUID(), legal, before, game));
+    }
+
+    assertEquals(MoveJournal.HEADER_SIZE, Files.size(file));
+  }
+
+  @Test
+  void recoveredGamesGetTheSameTiles() throws IOException {
+    Path file = dir.resolve("moves.log");
+    UUID id = UUID.randomUUID();
+    Game game;
+    try (MoveJournal journal = new MoveJournal(file)) {
+      game = play(journal, id, 3, 20);
+    }
+
+    StripedGameStore store = newStore();
+    MoveJournal.recover(file, store);
+    for (Direction direction : Direction.values()) {
+      game.move(direction);
+      store.withGame(id, g -> g.move(direction));
+    }
+
+    assertEquals(game.getBoard(), store.withGame(id, Game::getBoard));
+  }
+
+  @Test
+  void awaitedRecordsAreOnDisk() throws IOException {
+    Path file = dir.resolve("moves.log");
+    UUID id = UUID.randomUUID();
+    try (MoveJournal journal = new MoveJournal(file)) {
+      Game game = new Game(new SplitMixSpawner(1));
+      game.initialize();
+      long first = journal.logGame(id, game);
+      long before = game.getBoard();
+      Direction direction = game.move(Direction.left) ? Direction.left : Direction.right;
+      if (direction == Direction.right) game.move(direction);
+      long second = journal.logMove(id, direction, before, game);
+      journal.await(second);
+
+      assertAll(
+              () -> assertEquals(first + 1, second),
+              () -> assertEquals(MoveJournal.HEADER_SIZE + 2 * MoveJournal.RECORD_SIZE, Files.size(file))
+      );
+    }
+  }
+
+  @Test
+  void tornTailIsIgnored() throws IOException {
+    Path file = dir.resolve("moves.log");
+    UUID id = UUID.randomUUID();
+    Game game;
+    try (MoveJournal journal = new MoveJournal(file)) {
+      game = play(journal, id, 9, 50);
+    }
+    Files.write(file, new byte[MoveJournal.RECORD_SIZE / 2], StandardOpenOption.APPEND);
+    Files.write(file, new byte[MoveJournal.RECORD_SIZE], StandardOpenOption.APPEND);
+
+    StripedGameStore store = newStore();
+    MoveJournal.recover(file, store);
+
+    assertEquals(game.getBoard(), store.withGame(id, Game::getBoard));
+  }
+
+  @Test
+  void concurrentWritersAreAllDurable() throws Exception {
+    Path file = dir.resolve("moves.log");
+    UUID[] ids = new UUID[8];
+    Game[] games = new Game[ids.length];
+    try (MoveJournal journal = new MoveJournal(file)) {
+      ExecutorService executor = Executors.newFixedThreadPool(ids.length);
+      Future<?>[] futures = new Future<?>[ids.length];
+      for (int i = 0; i < ids.length; i++) {
+        int n = i;
+        ids[n] = UUID.randomUUID();
+        futures[n] = executor.submit(() -> games[n] = play(journal, ids[n], n, 100));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      executor.shutdown();
+    }
+
+    StripedGameStore store = newStore();
+    assertEquals(ids.length, MoveJournal.recover(file, store));
+    for (int i = 0; i < ids.length; i++) {
+      assertEquals(games[i].getBoard(), store.withGame(ids[i], Game::getBoard));
+    }
+  }
+
+  @Test
+  void recoverySkipsExpiredGamesAndStopsAtCapacity() throws IOException {
+    Path file = dir.resolve("moves.log");
+    long[] now = {0};
+    UUID[] ids = new UUID[4];
+    try (MoveJournal journal = new MoveJournal(file, 100, 60_000, () -> now[0])) {
+      for (int i = 0; i < ids.length; i++) {
+        ids[i] = UUID.randomUUID();
+        play(journal, ids[i], i, 20);
+        now[0] += 10_000;
+      }
+    }
+
+    // the first game is 40 s old, the second 30 s
+    StripedGameStore store = newStore();
+    assertAll(
+            () -> assertEquals(2, MoveJournal.recover(file, store, 2, 35_000, now[0])),
+            () -> assertNull(store.withGame(ids[0], g -> g), "expired"),
+            () -> assertNull(store.withGame(ids[1], g -> g), "beyond capacity"),
+            () -> assertNotNull(store.withGame(ids[2], g -> g)),
+            () -> assertNotNull(store.withGame(ids[3], g -> g)),
+            () -> assertEquals(MoveJournal.HEADER_SIZE + 2 * MoveJournal.RECORD_SIZE, Files.size(file))
+    );
+  }
+
+  @Test
+  void recoveryIntoASmallerStoreKeepsTheNewestGames() throws IOException {
+    Path file = dir.resolve("moves.log");
+    long[] now = {0};
+    UUID[] ids = new UUID[10];
+    try (MoveJournal journal = new MoveJournal(file, 100, 60_000, () -> now[0])) {
+      for (int i = 0; i < ids.length; i++) {
+        ids[i] = UUID.randomUUID();
+        play(journal, ids[i], i, 5);
+        now[0] += 1_000;
+      }
+    }
+
+    StripedGameStore store = new StripedGameStore(4, 60_000, 1, () -> now[0]);
+    assertEquals(4, MoveJournal.recover(file, store, 100, 60_000, now[0]));
+    for (int i = 0; i < ids.length; i++) {
+      if (i < 6) {
+        assertNull(store.withGame(ids[i], g -> g), "older game " + i);
+      } else {
+        assertNotNull(store.withGame(ids[i], g -> g), "newer game " + i);
+      }
+    }
+    assertEquals(MoveJournal.HEADER_SIZE + 4 * MoveJournal.RECORD_SIZE, Files.size(file));
+  }
+
+  @Test
+  void recoveryCountsOnlyGamesTheStoreKept() throws IOException {
+    Path file = dir.resolve("moves.log");
+    long[] now = {0};
+    UUID newest = null;
+    try (MoveJournal journal = new MoveJournal(file, 100, 60_000, () -> now[0])) {
+      for (int i = 0; i < 20; i++) {
+        newest = UUID.randomUUID();
+        play(journal, newest, i, 5);
+        now[0] += 1_000;
+      }
+    }
+
+    // four stripes of one game each, so colliding games evict each other
+    StripedGameStore store = new StripedGameStore(4, 60_000, 4, () -> now[0]);
+    int recovered = MoveJournal.recover(file, store, 100, 60_000, now[0]);
+    UUID last = newest;
+    assertAll(
+            () -> assertEquals(store.size(), recovered),
+            () -> assertNotNull(store.withGame(last, g -> g), "the newest game is put last"),
+            () -> assertEquals(MoveJournal.HEADER_SIZE + (long) recovered * MoveJournal.RECORD_SIZE, Files.size(file))
+    );
+  }
+
+  @Test
+  void compactionDropsExpiredGamesAndKeepsLaterRecords() throws IOException {
+    Path file = dir.resolve("moves.log");
+    long[] now = {0};
+    UUID expired = UUID.randomUUID();
+    UUID kept = UUID.randomUUID();
+    UUID later = UUID.randomUUID();
+    Game keptGame;
+    Game laterGame;
+    try (MoveJournal journal = new MoveJournal(file, 100, 60_000, () -> now[0])) {
+      play(journal, expired, 1, 50);
+      now[0] += 100_000;
+      keptGame = play(journal, kept, 2, 50);
+      journal.compact();
+      assertEquals(MoveJournal.HEADER_SIZE + MoveJournal.RECORD_SIZE, Files.size(file));
+      laterGame = play(journal, later, 3, 50);
+    }
+
+    StripedGameStore store = newStore();
+    assertAll(
+            () -> assertEquals(2, MoveJournal.recover(file, store)),
+            () -> assertNull(store.withGame(expired, g -> g)),
+            () -> assertEquals(keptGame.getBoard(), store.withGame(kept, Game::getBoard)),
+            () -> assertEquals(laterGame.getBoard(), store.withGame(later, Game::getBoard))
+    );
+  }
+
+  @Test
+  void concurrentWritersSurviveCompaction() throws Exception {
+    Path file = dir.resolve("moves.log");
+    UUID[] ids = new UUID[8];
+    Game[] games = new Game[ids.length];
+    // compacts every 32 records
+    try (MoveJournal journal = new MoveJournal(file, ids.length, 60_000)) {
+      ExecutorService executor = Executors.newFixedThreadPool(ids.length);
+      Future<?>[] futures = new Future<?>[ids.length];
+      for (int i = 0; i < ids.length; i++) {
+        int n = i;
+        ids[n] = UUID.randomUUID();
+        futures[n] = executor.submit(() -> games[n] = play(journal, ids[n], n, 200));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      executor.shutdown();
+    }
+
+    StripedGameStore store = newStore();
+    assertEquals(ids.length, MoveJournal.recover(file, store));
+    for (int i = 0; i < ids.length; i++) {
+      assertEquals(games[i].getBoard(), store.withGame(ids[i], Game::getBoard));
+    }
+  }
+
+  @Test
+  void version1JournalsAreRecovered() throws IOException {
+    Path file = dir.resolve("moves.log");
+    UUID id = UUID.randomUUID();
+    Game game = new Game(new SplitMixSpawner(4));
+    game.initialize();
+    ByteBuffer record = ByteBuffer.allocate(MoveJournal.V1_RECORD_SIZE);
+    record.put((byte) 1).put((byte) 0).put((byte) 0).put((byte) 0).putInt(0)
+            .putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits())
+            .putLong(game.getBoard()).putInt(game.getScore()).putInt(game.getMoves())
+            .putLong(game.getSpawner().getState());
+    CRC32 crc = new CRC32();
+    crc.update(record.array(), 0, 4);
+    crc.update(record.array(), 8, MoveJournal.V1_RECORD_SIZE - 8);
+    record.putInt(4, (int) crc.getValue());
+    Files.write(file, record.array());
+
+    StripedGameStore store = newStore();
+    assertAll(
+            () -> assertEquals(1, MoveJournal.recover(file, store)),
+            () -> assertEquals(game.getBoard(), store.withGame(id, Game::getBoard)),
+            () -> assertEquals(MoveJournal.HEADER_SIZE + MoveJournal.RECORD_SIZE, Files.size(file))
+    );
+  }
+}
@@ -0,0 +1,152 @@
+package spw4.game2048.store;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import spw4.game2048.Direction;
+import spw4.game2048.Game;
+import spw4.game2048.RandomSpawner;
+import spw4.game2048.SplitMixSpawner;
+
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapGameStoreTest {
+
+  long now;
+  OffHeapGameStore store;
+
+  @BeforeEach
+  void setUp() {
+    now = 1_000_000;
+    store = new OffHeapGameStore(100, 10_000, () -> now);
+  }
+
+  @Test
+  void gameStateSurvivesRoundTrip() {
+    UUID id = UUID.randomUUID();
+    Game game = new Game(new SplitMixSpawner(1));
+    game.initialize();
+    store.put(id, game);
+
+    store.withGame(id, g -> {
+      for (Direction direction : Direction.values()) {
+        g.move(direction);
+      }
+      return null;
+    });
+    Game stored = store.withGame(id, g -> g);
+
+    assertAll(
+            () -> assertNotEquals(game.getBoard(), stored.getBoard()),
+            () -> assertTrue(stored.getMoves() > 0),
+            () -> assertEquals(stored.getBoard(), store.withGame(id, Game::getBoard)),
+            () -> assertEquals(stored.getScore(), store.withGame(id, Game::getScore))
+    );
+  }
+
+  @Test
+  void gamesWithoutSpawnerStateAreRejected() {
+    UUID id = UUID.randomUUID();
+    Game game = new Game(new RandomSpawner(new Random(1)));
+
+    assertThrows(IllegalArgumentException.class, () -> store.put(id, game));
+    assertEquals(0, store.size());
+    assertNull(store.withGame(id, g -> g));
+  }
+
+  @Test
+  void manyGamesAndRemoval() {
+    UUID[] ids = new UUID[100];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = UUID.randomUUID();
+      store.put(ids[i], new Game(i, i, i, new SplitMixSpawner(i)));
+    }
+    for (int i = 0; i < ids.length; i += 2) {
+      assertTrue(store.remove(ids[i]));
+    }
+
+    assertEquals(50, store.size());
+    for (int i = 0; i < ids.length; i++) {
+      Integer moves = store.withGame(ids[i], Game::getMoves);
+      assertEquals(i % 2 == 0 ? null : i, moves);
+    }
+  }
+
+  @Test
+  void fullStoreEvictsInsteadOfRejecting() {
+    // access times have whole seconds, so at most 10 games tie with the newest, fewer than one sample
+    UUID recent = null;
+    for (int i = 0; i < 100; i++) {
+      recent = UUID.randomUUID();
+      store.put(recent, new Game());
+      now += 100;
+    }
+    store.put(UUID.randomUUID(), new Game());
+
+    UUID newest = recent;
+    assertAll(
+            () -> assertEquals(100, store.size()),
+            () -> assertEquals(1, store.getEvictions()),
+            () -> assertNotNull(store.withGame(newest, g -> g), "never the most recently used game")
+    );
+  }
+
+  @Test
+  void fullStoreEvictsLeastRecentlyUsed() {
+    // small enough for one sample to cover every game
+    OffHeapGameStore small = new OffHeapGameStore(8, 100_000, () -> now);
+    UUID[] ids = new UUID[8];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = UUID.randomUUID();
+      small.put(ids[i], new Game());
+      now += 1_000;
+    }
+    small.withGame(ids[0], g -> g);
+    small.put(UUID.randomUUID(), new Game());
+
+    assertAll(
+            () -> assertNotNull(small.withGame(ids[0], g -> g), "touched last"),
+            () -> assertNull(small.withGame(ids[1], g -> g), "least recently used"),
+            () -> assertEquals(8, small.size())
+    );
+  }
+
+  @Test
+  void fullStoreEvictsExpiredGames() {
+    for (int i = 0; i < 100; i++) {
+      store.put(UUID.randomUUID(), new Game());
+    }
+    now += 11_000;
+    store.put(UUID.randomUUID(), new Game());
+
+    assertAll(
+            () -> assertTrue(store.getEvictions() > 1, "every expired game in the sample"),
+            () -> assertTrue(store.size() < 100)
+    );
+  }
+
+  @Test
+  void probeSequencesStayShortUnderChurn() {
+    // 1000 games in 2048 slots, every put past the first thousand evicts one
+    OffHeapGameStore churned = new OffHeapGameStore(1000, 1_000_000, () -> now);
+    UUID[] ids = new UUID[50_000];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = UUID.randomUUID();
+      churned.put(ids[i], new Game());
+      now += 10;
+      if (i >= 500 && i % 7 == 0) churned.remove(ids[i - 500]);
+    }
+
+    int found = 0;
+    for (UUID id : ids) {
+      if (churned.withGame(id, g -> g) != null) found++;
+    }
+    int stored = found;
+    assertAll(
+            () -> assertTrue(churned.longestCluster() < 100, "longest cluster " + churned.longestCluster()),
+            () -> assertEquals(churned.size(), stored, "every stored game is found")
+    );
+  }
+}
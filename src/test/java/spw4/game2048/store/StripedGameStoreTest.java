@@ -0,0 +1,100 @@
+package spw4.game2048.store;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import spw4.game2048.Game;
+
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StripedGameStoreTest {
+
+  long now;
+  StripedGameStore store;
+
+  @BeforeEach
+  void setUp() {
+    now = 0;
+    store = new StripedGameStore(4, 1000, 1, () -> now);
+  }
+
+  @Test
+  void putAndGet() {
+    UUID id = UUID.randomUUID();
+    Game game = new Game();
+    store.put(id, game);
+
+    assertSame(game, store.withGame(id, g -> g));
+    assertNull(store.withGame(UUID.randomUUID(), g -> g));
+    assertEquals(1, store.size());
+  }
+
+  @Test
+  void removeGame() {
+    UUID id = UUID.randomUUID();
+    store.put(id, new Game());
+
+    assertTrue(store.remove(id));
+    assertFalse(store.remove(id));
+    assertEquals(0, store.size());
+  }
+
+  @Test
+  void leastRecentlyUsedIsEvictedWhenFull() {
+    UUID[] ids = new UUID[5];
+    for (int i = 0; i < 4; i++) {
+      ids[i] = UUID.randomUUID();
+      store.put(ids[i], new Game());
+    }
+    store.withGame(ids[0], g -> g);
+    ids[4] = UUID.randomUUID();
+    store.put(ids[4], new Game());
+
+    assertAll(
+            () -> assertEquals(4, store.size()),
+            () -> assertEquals(1, store.getEvictions()),
+            () -> assertNotNull(store.withGame(ids[0], g -> g)),
+            () -> assertNull(store.withGame(ids[1], g -> g))
+    );
+  }
+
+  @Test
+  void idleGamesExpire() {
+    UUID idle = UUID.randomUUID();
+    UUID active = UUID.randomUUID();
+    store.put(idle, new Game());
+    store.put(active, new Game());
+
+    now = 800;
+    store.withGame(active, g -> g);
+    now = 1500;
+    store.evictExpired();
+
+    assertAll(
+            () -> assertNull(store.withGame(idle, g -> g)),
+            () -> assertNotNull(store.withGame(active, g -> g)),
+            () -> assertEquals(1, store.size()),
+            () -> assertEquals(1, store.getEvictions())
+    );
+  }
+
+  @Test
+  void actionsOnSameGameAreSerialized() throws InterruptedException {
+    UUID id = UUID.randomUUID();
+    store.put(id, new Game());
+    int[] counter = new int[1];
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    for (int i = 0; i < 4000; i++) {
+      executor.execute(() -> store.withGame(id, g -> counter[0]++));
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+    assertEquals(4000, counter[0]);
+  }
+}
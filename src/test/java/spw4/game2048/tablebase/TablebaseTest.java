@@ -0,0 +1,227 @@
+package spw4.game2048.tablebase;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import spw4.game2048.Direction;
+import spw4.game2048.Game;
+import spw4.game2048.PackedRows;
+import spw4.game2048.SplitMixSpawner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TablebaseTest {
+
+  static final int TARGET = 16;
+  // 2 8 2 / 16 2 4 / 2 _ 2, crowded enough that reaching 32 is not certain
+  static final long ENDGAME = 0x101214131L;
+
+  @TempDir
+  static Path directory;
+  static Tablebase tablebase;
+  static long positions;
+  static Tablebase endgame;
+
+  @BeforeAll
+  static void generate() throws IOException {
+    TablebaseGenerator generator = new TablebaseGenerator(3, TARGET, 4, directory.resolve("work"));
+    Path file = directory.resolve("tablebase.bin");
+    positions = generator.generate(generator.newGamePositions(), file);
+    tablebase = Tablebase.open(file);
+
+    Path endgameFile = directory.resolve("endgame.bin");
+    new TablebaseGenerator(3, 32, 4, directory.resolve("work")).generate(new long[]{ENDGAME}, endgameFile);
+    endgame = Tablebase.open(endgameFile);
+  }
+
+  @AfterAll
+  static void close() throws IOException {
+    tablebase.close();
+    endgame.close();
+  }
+
+  @Test
+  void header() throws IOException {
+    assertAll(
+            () -> assertEquals(3, tablebase.getSize()),
+            () -> assertEquals(TARGET, tablebase.getWinningValue()),
+            () -> assertEquals(positions, tablebase.getPositions()),
+            () -> assertTrue(positions > LevelSet.INITIAL_CAPACITY, "levels had to grow")
+    );
+    try (Stream<Path> files = Files.list(directory.resolve("work"))) {
+      assertEquals(0, files.count(), "level files are removed");
+    }
+  }
+
+  @Test
+  void levelGrowsWithinABatch() throws IOException {
+    Path levels = Files.createDirectories(directory.resolve("batch"));
+    LevelSet level = new LevelSet(levels, "level", 4, 2048);
+    long[] keys = new long[(int) LevelSet.INITIAL_CAPACITY * 3 / 2];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = i + 1;
+    }
+    level.addAll(keys, keys.length);
+
+    assertEquals(keys.length, level.count());
+    try (HashFile table = HashFile.open(level.finish(), false)) {
+      assertTrue(table.count() <= table.capacity() / 2 + LevelSet.CHECK_INTERVAL);
+    }
+  }
+
+  @Test
+  void levelGrowsUnderConcurrentBatches() throws Exception {
+    Path levels = Files.createDirectories(directory.resolve("levels"));
+    LevelSet level = new LevelSet(levels, "level", 4, 2048);
+    int threads = 16;
+    int batch = 4096;
+    // all threads insert their batches at the same time
+    CyclicBarrier barrier = new CyclicBarrier(threads);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> workers = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        long first = (long) t * batch * 4 + 1;
+        workers.add(executor.submit(() -> {
+          long[] keys = new long[batch];
+          for (int round = 0; round < 4; round++) {
+            for (int i = 0; i < batch; i++) {
+              keys[i] = first + (long) round * batch + i;
+            }
+            barrier.await();
+            level.addAll(keys, batch);
+          }
+          return null;
+        }));
+      }
+      for (Future<?> worker : workers) {
+        worker.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertEquals((long) threads * batch * 4, level.count());
+    Path file = level.finish();
+    try (HashFile table = HashFile.open(file, false)) {
+      assertTrue(table.count() <= table.capacity() / 2 + (long) threads * LevelSet.CHECK_INTERVAL);
+    }
+  }
+
+  @Test
+  void valuesMatchExpectimax() {
+    Reference reference = new Reference(5);
+    PackedRows packed = PackedRows.forSize(3);
+    Random random = new Random(3);
+    int[] rows = new int[3];
+    int checked = 0;
+    int open = 0;
+    for (int i = 0; i < 200; i++) {
+      long key = ENDGAME;
+      while (!Tablebase.isWon(key, 5)) {
+        double value = endgame.winProbability(key);
+        assertEquals(reference.value(key), value, 1e-5, Long.toHexString(key));
+        checked++;
+        if (value > 0 && value < 1) open++;
+
+        Tablebase.rows(key, 3, rows);
+        int legal = packed.legalMoves(rows);
+        if (legal == 0) break;
+        int direction;
+        do {
+          direction = random.nextInt(4);
+        } while ((legal & 1 << direction) == 0);
+        packed.move(rows, Direction.values()[direction]);
+        long after = Tablebase.key(rows, 3);
+        int cell;
+        do {
+          cell = random.nextInt(9);
+        } while ((after >>> 4 * cell & 0xF) != 0);
+        key = after | (random.nextInt(10) == 0 ? 2L : 1L) << 4 * cell;
+      }
+    }
+    assertTrue(checked > 1000);
+    assertTrue(open > 5, "positions with an uncertain outcome");
+    // 2 16 2 / 16 8 4 / 4 2 _ only wins if a 2 fills the last cell
+    assertEquals(0.9, endgame.winProbability(0x12234141L), 1e-6);
+  }
+
+  @Test
+  void terminalPositions() {
+    // 2 4 2 / 4 2 4 / 2 4 2 has no moves left
+    long[] cells = {1, 2, 1, 2, 1, 2, 1, 2, 1};
+    long lost = 0;
+    for (int cell = 0; cell < 9; cell++) {
+      lost |= cells[cell] << 4 * cell;
+    }
+    assertEquals(0, tablebase.winProbability(lost));
+    assertEquals(1, tablebase.winProbability(4L << 8 | 1), "holds the winning tile");
+  }
+
+  @Test
+  void bestMoveWinsWhenCertain() {
+    for (int seed = 0; seed < 20; seed++) {
+      Game game = new Game(3, TARGET, new SplitMixSpawner(seed));
+      game.initialize();
+      double start = tablebase.winProbability(game);
+      while (!game.isOver() && !game.isWon()) {
+        game.move(tablebase.bestMove(game));
+      }
+      if (start == 1) assertTrue(game.isWon());
+    }
+    assertEquals(1, tablebase.newGameWinProbability(), 1e-6);
+  }
+
+  // independent top-down expectimax over the same rules
+  static class Reference {
+    final PackedRows packed = PackedRows.forSize(3);
+    final Map<Long, Double> values = new HashMap<>();
+    final int targetExponent;
+
+    Reference(int targetExponent) {
+      this.targetExponent = targetExponent;
+    }
+
+    double value(long key) {
+      if (Tablebase.isWon(key, targetExponent)) return 1;
+      Double cached = values.get(key);
+      if (cached != null) return cached;
+      int[] rows = new int[3];
+      Tablebase.rows(key, 3, rows);
+      double best = 0;
+      for (Direction direction : Direction.values()) {
+        int[] moved = rows.clone();
+        packed.move(moved, direction);
+        if (Arrays.equals(moved, rows)) continue;
+        long after = Tablebase.key(moved, 3);
+        double total = 0;
+        int empty = 0;
+        for (int cell = 0; cell < 9; cell++) {
+          if ((after >>> 4 * cell & 0xF) != 0) continue;
+          empty++;
+          total += Game.PROBABILITY_OF_TWO * value(after | 1L << 4 * cell)
+                  + (1 - Game.PROBABILITY_OF_TWO) * value(after | 2L << 4 * cell);
+        }
+        best = Math.max(best, total / empty);
+      }
+      values.put(key, best);
+      return best;
+    }
+  }
+}